@@ -0,0 +1,77 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.config.benchmarks;
+
+import java.util.Map;
+
+import com.google.common.collect.Maps;
+
+import org.apache.commons.configuration.AbstractConfiguration;
+import org.apache.commons.configuration.MapConfiguration;
+
+import com.opentable.config.Config;
+
+/**
+ * Builds the configurations the benchmarks read from. Keys are spread over {@link #GROUPS} prefixes,
+ * {@code ot.bench.group<i % GROUPS>.key<i>}, and the value of a key is its number. Every prefix also
+ * holds the keys of a {@link BenchmarkBean}.
+ */
+final class BenchmarkConfigs
+{
+    static final int GROUPS = 100;
+
+    private BenchmarkConfigs()
+    {
+    }
+
+    static String group(final int i)
+    {
+        return "ot.bench.group" + (i % GROUPS);
+    }
+
+    static String key(final int i)
+    {
+        return "key" + i;
+    }
+
+    /**
+     * Creates a configuration of the given number of keys, stacked like a configuration hierarchy of
+     * the given depth: the bottom layer holds every key, and each layer above it overrides one key in ten.
+     */
+    static Config create(final int keyCount, final int depth)
+    {
+        final AbstractConfiguration[] layers = new AbstractConfiguration[depth];
+        for (int layer = 0; layer < depth; layer++) {
+            final boolean bottom = layer == depth - 1;
+            final Map<String, Object> values = Maps.newHashMap();
+            for (int i = 0; i < keyCount; i++) {
+                if (bottom || i % 10 == layer) {
+                    values.put(group(i) + "." + key(i), Integer.toString(i));
+                }
+            }
+            for (int i = 0; i < GROUPS; i++) {
+                if (bottom) {
+                    values.put(group(i) + ".name", "group" + i);
+                    values.put(group(i) + ".count", Integer.toString(i));
+                }
+                if (layer == 0) {
+                    values.put(group(i) + ".timeout", (i + 1) + "s");
+                }
+            }
+            layers[layer] = new MapConfiguration(values);
+        }
+        // The first layer wins.
+        return Config.getFixedConfig(layers);
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.config.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.opentable.config.Config;
+
+/**
+ * Builds configuration beans and reads their values. A warm build uses the cached bean factory of its
+ * prefix. A cold build alternates between two prefixes of a configuration that caches only one bean
+ * factory, so every build creates its factory first, as beans built for many tenants do.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ConfigBeanBenchmark
+{
+    @Param({"100", "10000"})
+    private int keyCount;
+
+    @Param({"1", "4"})
+    private int depth;
+
+    private Config config;
+    private Config coldConfig;
+    private String prefix;
+    private String [] coldPrefixes;
+    private BenchmarkBean bean;
+    private int cold;
+
+    @Setup
+    public void setUp()
+    {
+        config = BenchmarkConfigs.create(keyCount, depth);
+        prefix = BenchmarkConfigs.group(keyCount / 2);
+        bean = config.getBean(prefix, BenchmarkBean.class);
+
+        final String cacheSize = System.getProperty(Config.BEAN_FACTORY_CACHE_SIZE_PROPERTY_NAME);
+        System.setProperty(Config.BEAN_FACTORY_CACHE_SIZE_PROPERTY_NAME, "1");
+        try {
+            coldConfig = BenchmarkConfigs.create(keyCount, depth);
+        }
+        finally {
+            if (cacheSize == null) {
+                System.clearProperty(Config.BEAN_FACTORY_CACHE_SIZE_PROPERTY_NAME);
+            }
+            else {
+                System.setProperty(Config.BEAN_FACTORY_CACHE_SIZE_PROPERTY_NAME, cacheSize);
+            }
+        }
+        coldPrefixes = new String [] { BenchmarkConfigs.group(0), BenchmarkConfigs.group(1) };
+    }
+
+    @Benchmark
+    public BenchmarkBean getBeanWarm()
+    {
+        return config.getBean(prefix, BenchmarkBean.class);
+    }
+
+    @Benchmark
+    public BenchmarkBean getBeanCold()
+    {
+        return coldConfig.getBean(coldPrefixes[cold++ & 1], BenchmarkBean.class);
+    }
+
+    @Benchmark
+    public void getterCalls(final Blackhole blackhole)
+    {
+        blackhole.consume(bean.getName());
+        blackhole.consume(bean.getCount());
+        blackhole.consume(bean.getTimeout());
+    }
+}
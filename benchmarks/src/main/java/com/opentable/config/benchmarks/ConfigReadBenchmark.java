@@ -0,0 +1,97 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.config.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.configuration.AbstractConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.opentable.config.Config;
+
+/**
+ * Reads single values, through the root configuration and through a prefix.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ConfigReadBenchmark
+{
+    @Param({"100", "10000"})
+    private int keyCount;
+
+    @Param({"1", "4"})
+    private int depth;
+
+    private Config config;
+    private String prefix;
+    private String key;
+    private String fullKey;
+    private String missingKey;
+
+    @Setup
+    public void setUp()
+    {
+        config = BenchmarkConfigs.create(keyCount, depth);
+        final int i = keyCount / 2;
+        prefix = BenchmarkConfigs.group(i);
+        key = BenchmarkConfigs.key(i);
+        // Keys are built here, so that no operation allocates them.
+        fullKey = prefix + "." + key;
+        missingKey = prefix + ".missing";
+    }
+
+    @Benchmark
+    public String getString()
+    {
+        return config.getConfiguration().getString(fullKey);
+    }
+
+    @Benchmark
+    public int getInt()
+    {
+        return config.getConfiguration().getInt(fullKey);
+    }
+
+    @Benchmark
+    public String getMissingString()
+    {
+        return config.getConfiguration().getString(missingKey, null);
+    }
+
+    @Benchmark
+    public AbstractConfiguration getPrefixConfiguration()
+    {
+        return config.getConfiguration(prefix);
+    }
+
+    @Benchmark
+    public String getStringFromPrefix()
+    {
+        return config.getConfiguration(prefix).getString(key);
+    }
+}
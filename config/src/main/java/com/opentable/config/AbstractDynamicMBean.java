@@ -13,8 +13,7 @@
  */
 package com.opentable.config;
 
-import java.util.Map;
-import java.util.Map.Entry;
+import java.util.function.Supplier;
 
 import javax.management.Attribute;
 import javax.management.AttributeList;
@@ -30,44 +29,54 @@ import javax.management.MBeanOperationInfo;
 import javax.management.ReflectionException;
 
 /**
- * Export a Map<String, Object> as a DynamicMBean.  All values are made into Strings via
- * the toString() method.  All properties are read-only.
+ * Export read-only attributes as a DynamicMBean.  Subclasses serve attribute values on
+ * demand, the MBeanInfo describing them is only built when it is first queried and again
+ * after subclasses invalidate it.
  */
 abstract class AbstractDynamicMBean implements DynamicMBean
 {
+    private final String name;
 
-    private final Map<String, Object> attributeMap;
-    private final MBeanInfo mbeanInfo;
+    private volatile MBeanInfo mbeanInfo;
 
-    AbstractDynamicMBean(String name, Map<String, Object> attributeMap)
+    AbstractDynamicMBean(String name)
     {
-        this.attributeMap = attributeMap;
+        this.name = name;
+    }
 
-        MBeanAttributeInfo[] attribs = new MBeanAttributeInfo[attributeMap.size()];
-        int i = 0;
-        for (Entry<String, Object> entry : attributeMap.entrySet())
-        {
-            MBeanAttributeInfo attrib = new MBeanAttributeInfo(
-                    entry.getKey(),
-                    (entry.getValue() == null ? String.class : entry.getValue().getClass()).toString(),
-                    "", true, false, false);
-            attribs[i++] = attrib;
-        }
+    /**
+     * Describes all current attributes. Called lazily, when the MBeanInfo is queried.
+     */
+    protected abstract MBeanAttributeInfo[] createAttributeInfo();
+
+    protected abstract boolean hasAttribute(String attribute);
+
+    protected abstract Object readAttribute(String attribute);
+
+    /**
+     * Discard the MBeanInfo, e.g. because attributes were added or removed.
+     */
+    protected final void invalidateMBeanInfo()
+    {
+        mbeanInfo = null;
+    }
 
-        mbeanInfo = new MBeanInfo(name, "", attribs,
-                new MBeanConstructorInfo[0],
-                new MBeanOperationInfo[0],
-                new MBeanNotificationInfo[0]);
+    /**
+     * Notifications emitted by this bean. None by default.
+     */
+    public MBeanNotificationInfo[] getNotificationInfo()
+    {
+        return new MBeanNotificationInfo[0];
     }
 
     @Override
     public Object getAttribute(String attribute) throws AttributeNotFoundException, MBeanException, ReflectionException
     {
-        if (!attributeMap.containsKey(attribute))
+        if (!hasAttribute(attribute))
         {
             throw new AttributeNotFoundException();
         }
-        return attributeMap.get(attribute);
+        return readAttribute(attribute);
     }
 
     @Override
@@ -83,9 +92,15 @@ abstract class AbstractDynamicMBean implements DynamicMBean
         AttributeList result = new AttributeList(attributes.length);
         for (String attribute : attributes)
         {
-            if (attributeMap.containsKey(attribute))
+            if (hasAttribute(attribute))
             {
-                result.add(new Attribute(attribute, attributeMap.get(attribute)));
+                try
+                {
+                    result.add(new Attribute(attribute, readAttribute(attribute)));
+                } catch (RuntimeException e)
+                {
+                    // As required for DynamicMBean, attributes that cannot be read are left out.
+                }
             }
         }
         return result;
@@ -107,6 +122,52 @@ abstract class AbstractDynamicMBean implements DynamicMBean
     @Override
     public MBeanInfo getMBeanInfo()
     {
-        return mbeanInfo;
+        MBeanInfo result = mbeanInfo;
+        if (result == null)
+        {
+            result = new LazyMBeanInfo(name, this::createAttributeInfo, getNotificationInfo());
+            mbeanInfo = result;
+        }
+        return result;
+    }
+
+    /**
+     * The MBean server asks for the MBeanInfo when a bean is registered, but only needs its class name.
+     * This defers describing the attributes until a client actually lists them.
+     */
+    private static final class LazyMBeanInfo extends MBeanInfo
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Supplier<MBeanAttributeInfo[]> attributeSupplier;
+        private transient volatile MBeanAttributeInfo[] attributes;
+
+        LazyMBeanInfo(String className, Supplier<MBeanAttributeInfo[]> attributeSupplier, MBeanNotificationInfo[] notifications)
+        {
+            super(className, "", null,
+                    new MBeanConstructorInfo[0],
+                    new MBeanOperationInfo[0],
+                    notifications);
+            this.attributeSupplier = attributeSupplier;
+        }
+
+        @Override
+        public MBeanAttributeInfo[] getAttributes()
+        {
+            MBeanAttributeInfo[] result = attributes;
+            if (result == null)
+            {
+                result = attributeSupplier.get();
+                attributes = result;
+            }
+            return result.clone();
+        }
+
+        // Remote clients receive a plain MBeanInfo with all attributes.
+        private Object writeReplace()
+        {
+            return new MBeanInfo(getClassName(), getDescription(), getAttributes(), getConstructors(),
+                    getOperations(), getNotifications(), getDescriptor());
+        }
     }
 }
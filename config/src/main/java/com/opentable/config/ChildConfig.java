@@ -0,0 +1,139 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.config;
+
+import java.util.Optional;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+
+import org.skife.config.ConfigSource;
+
+/**
+ * A few overridden keys over an immutable {@link ConfigSnapshot}, meant to be created per request or per tenant.
+ * The overrides are kept in the key/value array passed in, so creating a child config allocates nothing but
+ * the child itself.
+ *
+ * Override values are used as given. They are not interpolated, and keys of the parent that refer to an
+ * overridden key keep their value. Use {@link Config#getOverriddenConfig(Config, org.apache.commons.configuration.AbstractConfiguration...)}
+ * where this matters.
+ */
+public final class ChildConfig
+{
+    private final ConfigSnapshot parent;
+    private final String [] keyValuePairs;
+
+    ChildConfig(@Nonnull final ConfigSnapshot parent, @Nonnull final String [] keyValuePairs)
+    {
+        Preconditions.checkArgument(keyValuePairs.length % 2 == 0, "Odd number of arguments for key/value pairs");
+        this.parent = parent;
+        this.keyValuePairs = keyValuePairs;
+    }
+
+    public ConfigSnapshot getParent()
+    {
+        return parent;
+    }
+
+    @Nullable
+    public String getString(final String key)
+    {
+        for (int i = 0; i < keyValuePairs.length; i += 2) {
+            if (key.equals(keyValuePairs[i])) {
+                return keyValuePairs[i + 1];
+            }
+        }
+        return parent.getString(key);
+    }
+
+    public boolean containsKey(final String key)
+    {
+        return getString(key) != null;
+    }
+
+    public <T> T getBean(final Class<T> classType)
+    {
+        return getBean(null, classType);
+    }
+
+    /**
+     * Builds a configuration bean from the values of this child. If none of the keys read by the bean are overridden,
+     * the bean of the parent is returned, which is built only once per parent snapshot.
+     */
+    public <T> T getBean(@Nullable final String prefix, final Class<T> classType)
+    {
+        if (!overridesAny(prefix, parent.getBeanKeys(classType))) {
+            return parent.getSharedBean(prefix, classType);
+        }
+        final ChildConfigSource source = new ChildConfigSource(prefix);
+        final T bean = GeneratedBeans.build(classType, source);
+        return bean != null ? bean : ConfigSnapshot.newObjectFactory(source).build(classType);
+    }
+
+    private boolean overridesAny(@Nullable final String prefix, final Optional<Set<String>> beanKeys)
+    {
+        if (!beanKeys.isPresent()) {
+            // The bean uses replacements in its keys, so the keys it reads are not known up front.
+            return true;
+        }
+
+        final Set<String> keys = beanKeys.get();
+        for (int i = 0; i < keyValuePairs.length; i += 2) {
+            final String key = keyValuePairs[i];
+            if (prefix == null) {
+                if (keys.contains(key)) {
+                    return true;
+                }
+            }
+            else if (key.length() > prefix.length() && key.startsWith(prefix) && key.charAt(prefix.length()) == '.') {
+                if (keys.contains(key.substring(prefix.length() + 1))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < keyValuePairs.length; i += 2) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(keyValuePairs[i]).append("->").append(keyValuePairs[i + 1]);
+        }
+        return sb.append("] over generation ").append(parent.getGeneration()).toString();
+    }
+
+    private final class ChildConfigSource implements ConfigSource
+    {
+        private final String prefix;
+
+        ChildConfigSource(@Nullable final String prefix)
+        {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public String getString(final String propertyName)
+        {
+            return ChildConfig.this.getString(prefix == null ? propertyName : prefix + "." + propertyName);
+        }
+    }
+}
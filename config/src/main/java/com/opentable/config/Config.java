@@ -13,19 +13,25 @@
  */
 package com.opentable.config;
 
+import java.io.IOException;
+import java.lang.ref.WeakReference;
 import java.net.URI;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
-import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
-import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
 import org.apache.commons.configuration.AbstractConfiguration;
@@ -33,14 +39,15 @@ import org.apache.commons.configuration.CombinedConfiguration;
 import org.apache.commons.configuration.Configuration;
 import org.apache.commons.configuration.MapConfiguration;
 import org.apache.commons.configuration.SystemConfiguration;
+import org.apache.commons.configuration.event.ConfigurationEvent;
+import org.apache.commons.configuration.event.ConfigurationListener;
 import org.apache.commons.configuration.tree.OverrideCombiner;
 import org.apache.commons.lang3.StringUtils;
-import org.skife.config.CommonsConfigSource;
-import org.skife.config.ConfigurationObjectFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.opentable.config.util.ImmutableConfiguration;
+import com.opentable.config.util.ConfigAccessTracker;
+import com.opentable.config.util.SnapshotSystemConfiguration;
 
 /**
  * Load configurations from a hierarchy of configuration files. A hierarchy is defined as "a/b/c/d/..." more local
@@ -51,6 +58,14 @@ import com.opentable.config.util.ImmutableConfiguration;
  * is loaded relative to a "configuration location".
  *
  * A configuration location can be given using the explicit constructor or through environment variables (ot.config and ot.config.location).
+ *
+ * All values are read from an immutable {@link ConfigSnapshot}. A new snapshot with a higher generation is published
+ * whenever one of the configuration sources reports a change or {@link #refresh()} finds different values. System
+ * properties are captured when a snapshot is built. With {@code -Dot.config.snapshot-system-properties=true}, they
+ * are copied into an immutable layer once at load time instead of being read from the live system properties.
+ *
+ * A configuration created by {@link #getOverriddenConfig(Config, AbstractConfiguration...)} shares the snapshot of
+ * its parent and stores only its overrides. It follows changes of the parent when it is read next.
  */
 public final class Config
 {
@@ -59,12 +74,34 @@ public final class Config
     /** Java system property for setting the configuration. */
     public static final String CONFIG_PROPERTY_NAME = "ot.config";
     public static final String CONFIG_LOCATION_PROPERTY_NAME = "ot.config.location";
-
-    private static final Object NULL_OBJECT = new Object();
-    private final ConcurrentMap<Object, ConfigurationObjectFactory> objectFactories = Maps.newConcurrentMap();
+    /** If set to true, system properties are copied once at load time and only re-read by {@link #refresh()}. */
+    public static final String SNAPSHOT_SYSTEM_PROPERTIES_PROPERTY_NAME = "ot.config.snapshot-system-properties";
+    /** If set, environment variables starting with this prefix override configuration files, e.g. OT_DB_HOST for ot.db.host. */
+    public static final String ENVIRONMENT_PREFIX_PROPERTY_NAME = "ot.config.environment-prefix";
+    /** If set to n > 0, one in n reads is counted per key, see {@link #getAccessTracker()}. */
+    public static final String ACCESS_SAMPLE_RATE_PROPERTY_NAME = "ot.config.access-sample-rate";
+    /** The number of bean prefixes and bean classes whose bean metadata each snapshot keeps, see {@link #getBeanFactoryStats()}. */
+    public static final String BEAN_FACTORY_CACHE_SIZE_PROPERTY_NAME = "ot.config.bean-factory-cache-size";
+    public static final int DEFAULT_BEAN_FACTORY_CACHE_SIZE = 1024;
+
+    /** Source of keys set by the overrides of {@link #getOverriddenConfig(Config, AbstractConfiguration...)}. */
+    static final String OVERRIDE_SOURCE = "override";
 
     private final CombinedConfiguration config;
 
+    /** For an overridden configuration, the configuration it was derived from and the override layers. */
+    private final Config parent;
+    private final List<AbstractConfiguration> overrides;
+
+    /** The system properties layer, which still wins over overrides. */
+    private final AbstractConfiguration systemLayer;
+
+    private final ConfigAccessTracker accessTracker;
+
+    private volatile ConfigSnapshot snapshot;
+
+    private final List<ConfigChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+
     /**
      * Creates a fixed configuration for the supplied {@link AbstractConfiguration} objects. Only key/value
      * pairs from these objects will be present in the final configuration.
@@ -80,7 +117,7 @@ public final class Config
                 cc.addConfiguration(config);
             }
         }
-        return new Config(cc);
+        return create(cc);
     }
 
     /**
@@ -135,7 +172,7 @@ public final class Config
      */
     public static Config getEmptyConfig()
     {
-        return new Config(new CombinedConfiguration(new OverrideCombiner()));
+        return create(new CombinedConfiguration(new OverrideCombiner()));
     }
 
     /**
@@ -157,7 +194,7 @@ public final class Config
         final String configLocation = systemConfig.getString(CONFIG_LOCATION_PROPERTY_NAME);
         Preconditions.checkState(configLocation != null, "Config location must be set!");
         final ConfigFactory configFactory = new ConfigFactory(URI.create(configLocation), configName);
-        return new Config(configFactory.load());
+        return create(configFactory.load());
     }
 
     /**
@@ -167,12 +204,14 @@ public final class Config
     public static Config getConfig(@Nonnull final URI configLocation, @Nullable final String configName)
     {
         final ConfigFactory configFactory = new ConfigFactory(configLocation, configName);
-        return new Config(configFactory.load());
+        return create(configFactory.load());
     }
 
     /**
      * Create a new configuration object from an existing object using overrides. If no overrides are passed in, the same object is returned.
      *
+     * The new configuration shares the values of the existing object and stores only the overridden keys, so creating it costs
+     * time proportional to the number of overrides. System properties of the existing object still win over the overrides.
      */
     public static Config getOverriddenConfig(@Nonnull final Config config, @Nullable final AbstractConfiguration ... overrideConfigurations)
     {
@@ -180,70 +219,367 @@ public final class Config
             return config;
         }
 
-        final CombinedConfiguration cc = new CombinedConfiguration(new OverrideCombiner());
+        final Config overridden = new Config(config, ImmutableList.copyOf(overrideConfigurations));
+        for (final AbstractConfiguration c : overridden.overrides) {
+            OverrideListener.register(c, overridden);
+        }
+        return overridden;
+    }
 
-        int index  = 0;
-        final AbstractConfiguration first = config.config.getNumberOfConfigurations() > 0 ?
-            AbstractConfiguration.class.cast(config.config.getConfiguration(index)) // cast always succeeds, internally this returns cd.getConfiguration() which is AbstractConfiguration
-            : null;
+    private static boolean isSystemConfiguration(final AbstractConfiguration c)
+    {
+        return c.getClass() == SystemConfiguration.class || c instanceof SnapshotSystemConfiguration;
+    }
 
+    /**
+     * Load system configuration, using the supplied configLocation as base. The config location is converted
+     * into an URI first.
+     */
+    public static Config getConfig(@Nonnull final String configLocation, @Nullable final String configName)
+    {
+        final ConfigFactory configFactory = new ConfigFactory(URI.create(configLocation), configName);
+        return create(configFactory.load());
+    }
 
-        // If the passed in configuration has a system config, add this as the very first one so
-        // that system properties override still works.
-        if(first != null && first.getClass() == SystemConfiguration.class) {
-            cc.addConfiguration(first);
-            index++;
+    private static Config create(@Nonnull final CombinedConfiguration config)
+    {
+        final Config result = new Config(config);
+        // Registered only after construction, so that no event reaches a half built config.
+        config.addConfigurationListener(result::configurationChanged);
+        return result;
+    }
+
+    private Config(@Nonnull final CombinedConfiguration config)
+    {
+        this.config = config;
+        this.parent = null;
+        this.overrides = ImmutableList.of();
+
+        final Configuration first = config.getNumberOfConfigurations() > 0 ? config.getConfiguration(0) : null;
+        this.systemLayer = first instanceof AbstractConfiguration && isSystemConfiguration((AbstractConfiguration) first) ? (AbstractConfiguration) first : null;
+
+        final int sampleRate = Integer.getInteger(ACCESS_SAMPLE_RATE_PROPERTY_NAME, 0);
+        this.accessTracker = sampleRate > 0 ? new ConfigAccessTracker(sampleRate) : null;
+
+        this.snapshot = ConfigSnapshot.of(1, config, accessTracker);
+    }
+
+    private Config(@Nonnull final Config parent, @Nonnull final List<AbstractConfiguration> overrides)
+    {
+        this.config = null;
+        this.parent = parent;
+        this.overrides = overrides;
+
+        AbstractConfiguration systemLayer = parent.systemLayer;
+        for (final AbstractConfiguration c : overrides) {
+            if (systemLayer == null && isSystemConfiguration(c)) {
+                systemLayer = c;
+            }
         }
-        else {
-            // Otherwise, if any of the passed in configuration objects is a SystemConfiguration,
-            // put that at the very beginning.
-            for (AbstractConfiguration c : overrideConfigurations) {
-                if (c.getClass() == SystemConfiguration.class) {
-                    cc.addConfiguration(c);
+        this.systemLayer = systemLayer;
+        this.accessTracker = parent.accessTracker;
+
+        this.snapshot = buildOverlay(1, parent.getSnapshot());
+    }
+
+    private void configurationChanged(final ConfigurationEvent event)
+    {
+        if (!event.isBeforeUpdate() && event.getType() == CombinedConfiguration.EVENT_COMBINED_INVALIDATE) {
+            rebuild();
+        }
+    }
+
+    private void overrideChanged(final ConfigurationEvent event)
+    {
+        if (!event.isBeforeUpdate()) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Forwards changes of an override layer to the config derived from it. Override layers may be shared by many
+     * derived configs and outlive them, so the layer only holds the config weakly. Listeners of configs that were
+     * collected are removed on the next change of the layer and whenever another config is derived from it.
+     */
+    private static final class OverrideListener implements ConfigurationListener
+    {
+        private final AbstractConfiguration layer;
+        private final WeakReference<Config> config;
+
+        private OverrideListener(final AbstractConfiguration layer, final Config config)
+        {
+            this.layer = layer;
+            this.config = new WeakReference<>(config);
+        }
+
+        static void register(final AbstractConfiguration layer, final Config config)
+        {
+            for (final ConfigurationListener listener : layer.getConfigurationListeners()) {
+                if (listener instanceof OverrideListener && ((OverrideListener) listener).config.get() == null) {
+                    layer.removeConfigurationListener(listener);
+                }
+            }
+            layer.addConfigurationListener(new OverrideListener(layer, config));
+        }
+
+        @Override
+        public void configurationChanged(final ConfigurationEvent event)
+        {
+            final Config c = config.get();
+            if (c == null) {
+                layer.removeConfigurationListener(this);
+            }
+            else {
+                c.overrideChanged(event);
+            }
+        }
+    }
+
+    private ConfigSnapshot buildOverlay(final long generation, final ConfigSnapshot parentSnapshot)
+    {
+        // System overrides come first, unless the parent already has system properties. Those win over all
+        // overrides, so they are checked for every overridden key.
+        final List<AbstractConfiguration> layers = Lists.newArrayListWithCapacity(overrides.size());
+        if (parent.systemLayer == null) {
+            for (final AbstractConfiguration c : overrides) {
+                if (isSystemConfiguration(c)) {
+                    layers.add(c);
                 }
             }
         }
+        for (final AbstractConfiguration c : overrides) {
+            if (!isSystemConfiguration(c)) {
+                layers.add(c);
+            }
+        }
 
-        for (AbstractConfiguration c : overrideConfigurations) {
-            if (c.getClass() != SystemConfiguration.class) {
-                cc.addConfiguration(c); // Skip system configuration objects, they have been added earlier.
+        final Map<String, Object> values = Maps.newHashMap();
+        final Map<String, String> sources = Maps.newHashMap();
+        for (final AbstractConfiguration layer : layers) {
+            final String source = isSystemConfiguration(layer) ? ConfigFactory.SYSTEM_PROPERTIES_SOURCE : OVERRIDE_SOURCE;
+            for (final Iterator<String> it = layer.getKeys(); it.hasNext(); ) {
+                final String key = it.next();
+                if (!values.containsKey(key)) {
+                    final Object value = layer.getProperty(key);
+                    if (value != null) {
+                        values.put(key, ConfigSnapshot.copyValue(value));
+                        sources.put(key, source);
+                    }
+                }
             }
         }
 
-        // Finally, add the existing configuration elements at lowest priority.
-        while (index < config.config.getNumberOfConfigurations()) {
-            final AbstractConfiguration c = AbstractConfiguration.class.cast(config.config.getConfiguration(index++));
-            if (c.getClass() != SystemConfiguration.class) {
-                cc.addConfiguration(c);
+        if (parent.systemLayer != null) {
+            for (final Map.Entry<String, Object> entry : values.entrySet()) {
+                final Object value = parent.systemLayer.getProperty(entry.getKey());
+                if (value != null) {
+                    entry.setValue(ConfigSnapshot.copyValue(value));
+                    sources.put(entry.getKey(), ConfigFactory.SYSTEM_PROPERTIES_SOURCE);
+                }
             }
         }
 
-        return new Config(cc);
+        return ConfigSnapshot.overlay(generation, parentSnapshot, values, sources, overrides.get(0).getInterpolator());
     }
 
     /**
-     * Load system configuration, using the supplied configLocation as base. The config location is converted
-     * into an URI first.
+     * Re-reads all configuration sources, including system properties that were copied at load time. If any
+     * value changed, a new snapshot with the next generation is published.
+     *
+     * @return True if a new snapshot was published.
      */
-    public static Config getConfig(@Nonnull final String configLocation, @Nullable final String configName)
+    public synchronized boolean refresh()
     {
-        final ConfigFactory configFactory = new ConfigFactory(URI.create(configLocation), configName);
-        return new Config(configFactory.load());
+        final long generation = snapshot.getGeneration();
+        if (parent != null) {
+            parent.refresh();
+            for (final AbstractConfiguration c : overrides) {
+                if (c instanceof SnapshotSystemConfiguration) {
+                    ((SnapshotSystemConfiguration) c).refresh();
+                }
+            }
+            rebuild();
+            return snapshot.getGeneration() != generation;
+        }
+
+        for (int i = 0; i < config.getNumberOfConfigurations(); i++) {
+            final Configuration c = config.getConfiguration(i);
+            if (c instanceof SnapshotSystemConfiguration) {
+                ((SnapshotSystemConfiguration) c).refresh();
+            }
+        }
+
+        // Discard the combined node tree, so that live sources are read again. This calls back into rebuild().
+        config.invalidate();
+        return snapshot.getGeneration() != generation;
     }
 
-    private Config(@Nonnull final CombinedConfiguration config)
+    private synchronized boolean rebuild()
     {
-        this.config = config;
+        final ConfigSnapshot current = snapshot;
+        final ConfigSnapshot next;
+        if (parent == null) {
+            next = ConfigSnapshot.of(current.getGeneration() + 1, config, accessTracker);
+        }
+        else {
+            next = buildOverlay(current.getGeneration() + 1, parent.getSnapshot());
+        }
+
+        // An overlay over a new parent snapshot is always published, comparing all values would defeat the sharing.
+        if (next.getParent() == current.getParent() && next.hasSameValues(current)) {
+            return false;
+        }
+        snapshot = next;
+        LOG.info("Configuration changed, now at generation {}", next.getGeneration());
+
+        for (final ConfigChangeListener listener : changeListeners) {
+            try {
+                listener.configChanged(current, next);
+            }
+            catch (RuntimeException e) {
+                LOG.error(String.format("While notifying %s about configuration change", listener), e);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Register a listener that is notified whenever a new snapshot is published.
+     */
+    public void addChangeListener(@Nonnull final ConfigChangeListener listener)
+    {
+        changeListeners.add(listener);
+    }
+
+    public void removeChangeListener(@Nonnull final ConfigChangeListener listener)
+    {
+        changeListeners.remove(listener);
+    }
+
+    /**
+     * Returns the current snapshot. The snapshot never changes, so callers can hold on to it to read a consistent
+     * set of values.
+     */
+    public ConfigSnapshot getSnapshot()
+    {
+        final ConfigSnapshot current = snapshot;
+        if (parent != null && current.getParent() != parent.getSnapshot()) {
+            rebuild();
+            return snapshot;
+        }
+        return current;
+    }
+
+    /**
+     * Returns the generation of the current snapshot. This is cheap enough to be polled to detect configuration changes.
+     */
+    public long getGeneration()
+    {
+        return getSnapshot().getGeneration();
+    }
+
+    /**
+     * Returns the name of the configuration layer that supplied a key, see {@link ConfigSnapshot#getSource(String)}.
+     */
+    @Nullable
+    public String getSource(final String key)
+    {
+        return getSnapshot().getSource(key);
+    }
+
+    /**
+     * Reads all given keys from the same snapshot.
+     *
+     * @see ConfigSnapshot#getAll(String...)
+     */
+    public Map<String, String> getAll(final String ... keys)
+    {
+        return getSnapshot().getAll(keys);
+    }
+
+    /**
+     * Returns the tracker that counts reads per key, or null if access tracking is disabled. Tracking is enabled
+     * with {@code -Dot.config.access-sample-rate=n}, overridden configurations share the tracker of their parent.
+     */
+    @Nullable
+    public ConfigAccessTracker getAccessTracker()
+    {
+        return accessTracker;
+    }
+
+    /**
+     * Writes the read count of every key, most read first, followed by all keys that were never read.
+     *
+     * @throws IllegalStateException If access tracking is disabled.
+     */
+    public void dumpAccessCounts(@Nonnull final Appendable out) throws IOException
+    {
+        Preconditions.checkState(accessTracker != null, "Access tracking is disabled, set %s", ACCESS_SAMPLE_RATE_PROPERTY_NAME);
+        accessTracker.dumpTo(out, getSnapshot().getKeys());
+    }
+
+    /**
+     * Returns the elements of a list value without copying them.
+     *
+     * @see ConfigSnapshot#getStringList(String)
+     */
+    public List<String> getStringList(final String key)
+    {
+        return getSnapshot().getStringList(key);
+    }
+
+    /**
+     * @see ConfigSnapshot#getDuration(String)
+     */
+    @Nullable
+    public Duration getDuration(final String key)
+    {
+        return getSnapshot().getDuration(key);
+    }
+
+    /**
+     * @see ConfigSnapshot#getDurationNanos(String, long)
+     */
+    public long getDurationNanos(final String key, final long defaultValue)
+    {
+        return getSnapshot().getDurationNanos(key, defaultValue);
+    }
+
+    /**
+     * @see ConfigSnapshot#getDataSize(String)
+     */
+    @Nullable
+    public DataSize getDataSize(final String key)
+    {
+        return getSnapshot().getDataSize(key);
+    }
+
+    /**
+     * @see ConfigSnapshot#getBytes(String, long)
+     */
+    public long getBytes(final String key, final long defaultValue)
+    {
+        return getSnapshot().getBytes(key, defaultValue);
+    }
+
+    /**
+     * Creates a child config that overrides a few keys of the current snapshot, e.g. for a single request.
+     *
+     * @see ConfigSnapshot#withOverrides(String...)
+     */
+    public ChildConfig withOverrides(@Nonnull final String ... keyValuePairs)
+    {
+        return getSnapshot().withOverrides(keyValuePairs);
     }
 
     public AbstractConfiguration getConfiguration()
     {
-        return new ImmutableConfiguration(config);
+        return getSnapshot().getConfiguration();
     }
 
     public AbstractConfiguration getConfiguration(final String prefix)
     {
-        return new ImmutableConfiguration(config.subset(prefix));
+        return getSnapshot().getConfiguration(prefix);
     }
 
     public <T> T getBean(Class<T> classType)
@@ -263,41 +599,48 @@ public final class Config
 
     public <T> T getBean(final String prefix, final Class<T> classType, final Map<String, String> replacements)
     {
-        ConfigurationObjectFactory factory = null;
-        Object key = Objects.firstNonNull(prefix, NULL_OBJECT);
-        factory = objectFactories.get(key);
-        if (factory == null) {
-            Configuration cfg = prefix == null ? config : config.subset(prefix);
-            factory = new ConfigurationObjectFactory(new CommonsConfigSource(cfg));
-            ConfigurationObjectFactory newFactory = objectFactories.putIfAbsent(key, factory);
-            factory = Objects.firstNonNull(newFactory, factory);
-        }
-        return factory.buildWithReplacements(classType, replacements);
+        return getSnapshot().getBean(prefix, classType, replacements);
+    }
+
+    /**
+     * Returns hit, miss and eviction counts of the bean factories of the current snapshot. Every snapshot starts
+     * with an empty cache, so the counts restart when the configuration changes.
+     */
+    public CacheStats getBeanFactoryStats()
+    {
+        return getSnapshot().getBeanFactoryStats();
     }
 
-    private transient String toStringValue = null;
+    /**
+     * Writes all keys and values of the current snapshot, one {@code key=value} line per key in sorted order.
+     * Nothing is kept once the dump is written.
+     */
+    public void dumpTo(@Nonnull final Appendable out) throws IOException
+    {
+        final ConfigSnapshot snapshot = getSnapshot();
+        for (final String key : snapshot.getKeys()) {
+            out.append(key).append('=').append(snapshot.peekString(key)).append('\n');
+        }
+    }
 
     @Override
     public String toString()
     {
-        if (config == null) {
+        if (snapshot == null) {
             return "<uninitialized>";
         }
-        if (toStringValue == null) {
-            StringBuilder sb = new StringBuilder("[");
-            for (Iterator<?> it = config.getKeys(); it.hasNext(); ) {
-                String key = (String) it.next();
-                sb.append(key);
-                sb.append("->");
-                sb.append(config.getString(key));
-
-                if (it.hasNext()) {
-                    sb.append(", ");
-                }
+        final ConfigSnapshot snapshot = getSnapshot();
+        final StringBuilder sb = new StringBuilder("[");
+        for (final Iterator<String> it = snapshot.getKeys().iterator(); it.hasNext(); ) {
+            final String key = it.next();
+            sb.append(key);
+            sb.append("->");
+            sb.append(snapshot.peekString(key));
+
+            if (it.hasNext()) {
+                sb.append(", ");
             }
-            sb.append(']');
-            toStringValue = sb.toString();
         }
-        return toStringValue;
+        return sb.append(']').toString();
     }
 }
@@ -0,0 +1,72 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.config;
+
+import java.util.List;
+import java.util.Map;
+
+import com.opentable.config.util.ConfigAccessTracker;
+
+/**
+ * Export the access tracker of a Config to JMX.
+ */
+class ConfigAccess implements ConfigAccessMXBean
+{
+    static final int DEFAULT_HOT_KEYS = 50;
+
+    private final Config config;
+    private final ConfigAccessTracker tracker;
+
+    ConfigAccess(Config config, ConfigAccessTracker tracker)
+    {
+        this.config = config;
+        this.tracker = tracker;
+    }
+
+    @Override
+    public int getSampleRate()
+    {
+        return tracker.getSampleRate();
+    }
+
+    @Override
+    public String[] getHotKeys()
+    {
+        return hotKeys(DEFAULT_HOT_KEYS);
+    }
+
+    @Override
+    public String[] hotKeys(int limit)
+    {
+        List<Map.Entry<String, Long>> hotKeys = tracker.getHotKeys(limit);
+        String[] result = new String[hotKeys.size()];
+        for (int i = 0; i < result.length; i++)
+        {
+            result[i] = hotKeys.get(i).getKey() + " " + hotKeys.get(i).getValue();
+        }
+        return result;
+    }
+
+    @Override
+    public String[] getNeverReadKeys()
+    {
+        return tracker.getNeverReadKeys(config.getSnapshot().getKeys()).toArray(new String[0]);
+    }
+
+    @Override
+    public void reset()
+    {
+        tracker.reset();
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.config;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+import javax.annotation.Nullable;
+
+import org.skife.config.ConfigSource;
+
+/**
+ * Reads and converts values for the configuration beans generated by {@code otj-config-processor}. The generated
+ * code calls these methods, other code should use {@link Config#getBean(Class)}.
+ */
+public final class ConfigBeanSupport
+{
+    private ConfigBeanSupport()
+    {
+    }
+
+    /**
+     * Returns the value of the first key that has one, or null if none has.
+     */
+    @Nullable
+    public static String getValue(final ConfigSource source, final String ... keys)
+    {
+        for (final String key : keys) {
+            final String value = source.getString(key);
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    public static IllegalArgumentException missingValue(final Class<?> beanClass, final String method, final String ... keys)
+    {
+        return new IllegalArgumentException(String.format("No value present for %s in %s.%s()",
+            Arrays.toString(keys), beanClass.getName(), method));
+    }
+
+    public static Duration toDuration(final String value)
+    {
+        return Duration.ofNanos(QuantityParser.parseDurationNanos(value));
+    }
+
+    /**
+     * Returns the constant with the given name, ignoring case if there is no exact match.
+     */
+    public static <E extends Enum<E>> E toEnum(final Class<E> type, final String value)
+    {
+        for (final E constant : type.getEnumConstants()) {
+            if (constant.name().equals(value)) {
+                return constant;
+            }
+        }
+        for (final E constant : type.getEnumConstants()) {
+            if (constant.name().equalsIgnoreCase(value)) {
+                return constant;
+            }
+        }
+        throw new IllegalArgumentException(String.format("'%s' is not a constant of %s", value, type.getName()));
+    }
+}
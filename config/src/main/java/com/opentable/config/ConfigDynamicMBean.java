@@ -13,36 +13,237 @@
  */
 package com.opentable.config;
 
-import java.util.Iterator;
-import java.util.Map;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
-import org.apache.commons.configuration.AbstractConfiguration;
+import javax.management.AttributeChangeNotification;
+import javax.management.ListenerNotFoundException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanNotificationInfo;
+import javax.management.MBeanRegistration;
+import javax.management.MBeanServer;
+import javax.management.NotificationBroadcasterSupport;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationFilter;
+import javax.management.NotificationListener;
+import javax.management.ObjectName;
 
-import com.google.common.collect.Maps;
+import com.google.common.collect.Lists;
 
 /**
- * Export all Config keys to JMX.
+ * Export all Config keys to JMX.  The exported values follow the current snapshot of the
+ * Config, and an {@link AttributeChangeNotification} is sent for every key that changes.
+ * Values are read straight from the snapshot, the attribute list is only built when a JMX
+ * client first asks for it.
+ *
+ * A bean for a prefix exports only the keys of that prefix whose {@link #prefixOf(String, int)}
+ * is the prefix itself, under their name relative to the prefix. Prefix beans do not follow the
+ * Config themselves. Their exporter compares each new snapshot once for all of them and passes
+ * every bean its changed keys through {@link #update(ConfigSnapshot, ConfigSnapshot, Collection)}.
  */
-class ConfigDynamicMBean extends AbstractDynamicMBean
+class ConfigDynamicMBean extends AbstractDynamicMBean implements NotificationEmitter, MBeanRegistration
 {
+    private static final MBeanNotificationInfo[] NOTIFICATION_INFO = new MBeanNotificationInfo[] {
+        new MBeanNotificationInfo(
+                new String[] { AttributeChangeNotification.ATTRIBUTE_CHANGE },
+                AttributeChangeNotification.class.getName(),
+                "A configuration value changed")
+    };
+
+    private final Config config;
+    private final ConfigChangeListener changeListener = (previous, current) -> update(previous, current, current.getChangedKeys(previous));
+    private final NotificationBroadcasterSupport broadcaster = new NotificationBroadcasterSupport(NOTIFICATION_INFO);
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final String prefix;
+    private final int depth;
+    private final boolean listening;
+
+    private volatile ConfigSnapshot snapshot;
 
     ConfigDynamicMBean(String name, Config config)
     {
-        super (name, toMap(config));
+        this(name, config, null, 0);
+    }
+
+    /**
+     * @param prefix The prefix to export, or null for all keys.
+     * @param depth The maximum number of key segments of an exported prefix.
+     */
+    ConfigDynamicMBean(String name, Config config, String prefix, int depth)
+    {
+        super(name);
+        this.config = config;
+        this.prefix = prefix;
+        this.depth = depth;
+        this.listening = prefix == null;
+        this.snapshot = config.getSnapshot();
+    }
+
+    /**
+     * Returns the prefix a key is exported under: up to depth leading segments, but never the
+     * last segment of the key, so the attribute name is never empty. Keys without a dot have
+     * the empty prefix.
+     */
+    static String prefixOf(String key, int depth)
+    {
+        int end = -1;
+        for (int i = 0; i < depth; i++)
+        {
+            int dot = key.indexOf('.', end + 1);
+            if (dot < 0)
+            {
+                break;
+            }
+            end = dot;
+        }
+        return end < 0 ? "" : key.substring(0, end);
+    }
+
+    @Override
+    protected MBeanAttributeInfo[] createAttributeInfo()
+    {
+        ConfigSnapshot snapshot = this.snapshot;
+        List<MBeanAttributeInfo> attribs = Lists.newArrayList();
+        for (String key : prefix == null || prefix.isEmpty() ? snapshot.getKeys() : snapshot.getKeys(prefix))
+        {
+            String attribute = toAttribute(key);
+            if (attribute != null)
+            {
+                attribs.add(new MBeanAttributeInfo(attribute, String.class.getName(), "", true, false, false));
+            }
+        }
+        return attribs.toArray(new MBeanAttributeInfo[attribs.size()]);
+    }
+
+    /**
+     * Returns the attribute name of a key, or null if this bean does not export the key.
+     */
+    private String toAttribute(String key)
+    {
+        if (prefix == null)
+        {
+            return key;
+        }
+        if (!prefix.equals(prefixOf(key, depth)))
+        {
+            return null;
+        }
+        return prefix.isEmpty() ? key : key.substring(prefix.length() + 1);
+    }
+
+    private String toKey(String attribute)
+    {
+        return prefix == null || prefix.isEmpty() ? attribute : prefix + "." + attribute;
+    }
+
+    @Override
+    protected boolean hasAttribute(String attribute)
+    {
+        String key = toKey(attribute);
+        return snapshot.containsKey(key) && toAttribute(key) != null;
+    }
+
+    @Override
+    protected Object readAttribute(String attribute)
+    {
+        return snapshot.peekString(toKey(attribute));
     }
 
-    private static Map<String, Object> toMap(Config config)
+    /**
+     * Moves to a newer snapshot and notifies about the changed keys this bean exports. The given keys
+     * are only used if this bean is at the previous snapshot of the change, otherwise the bean compares
+     * its own snapshot with the new one.
+     */
+    synchronized void update(ConfigSnapshot changedFrom, ConfigSnapshot current, Collection<String> changedKeys)
     {
-        AbstractConfiguration configuration = config.getConfiguration();
-        Iterator<String> keys = configuration.getKeys();
+        ConfigSnapshot previous = snapshot;
+        if (current.getGeneration() <= previous.getGeneration())
+        {
+            return;
+        }
+
+        snapshot = current;
 
-        Map<String, Object> result = Maps.newHashMap();
-        while (keys.hasNext())
+        for (String key : previous == changedFrom ? changedKeys : current.getChangedKeys(previous))
         {
-            String key = keys.next();
-            result.put(key, configuration.getString(key));
+            String attribute = toAttribute(key);
+            if (attribute == null)
+            {
+                continue;
+            }
+
+            if (!previous.containsKey(key) || !current.containsKey(key))
+            {
+                invalidateMBeanInfo();
+            }
+
+            broadcaster.sendNotification(new AttributeChangeNotification(this,
+                    sequence.incrementAndGet(),
+                    System.currentTimeMillis(),
+                    "Configuration value changed",
+                    attribute,
+                    String.class.getName(),
+                    previous.peekString(key),
+                    current.peekString(key)));
         }
+    }
+
+    @Override
+    public ObjectName preRegister(MBeanServer server, ObjectName name)
+    {
+        return name;
+    }
 
-        return result;
+    @Override
+    public void postRegister(Boolean registrationDone)
+    {
+        if (listening && Boolean.TRUE.equals(registrationDone))
+        {
+            config.addChangeListener(changeListener);
+
+            // Catch up with changes that happened between construction and registration.
+            update(null, config.getSnapshot(), null);
+        }
+    }
+
+    @Override
+    public void preDeregister()
+    {
+    }
+
+    @Override
+    public void postDeregister()
+    {
+        if (listening)
+        {
+            config.removeChangeListener(changeListener);
+        }
+    }
+
+    @Override
+    public MBeanNotificationInfo[] getNotificationInfo()
+    {
+        return NOTIFICATION_INFO.clone();
+    }
+
+    @Override
+    public void addNotificationListener(NotificationListener listener, NotificationFilter filter, Object handback)
+    {
+        broadcaster.addNotificationListener(listener, filter, handback);
+    }
+
+    @Override
+    public void removeNotificationListener(NotificationListener listener) throws ListenerNotFoundException
+    {
+        broadcaster.removeNotificationListener(listener);
+    }
+
+    @Override
+    public void removeNotificationListener(NotificationListener listener, NotificationFilter filter, Object handback)
+            throws ListenerNotFoundException
+    {
+        broadcaster.removeNotificationListener(listener, filter, handback);
     }
 }
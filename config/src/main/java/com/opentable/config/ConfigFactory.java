@@ -36,11 +36,18 @@ import com.opentable.config.util.ClasspathConfigStrategy;
 import com.opentable.config.util.ConfigStrategy;
 import com.opentable.config.util.EmptyConfigStrategy;
 import com.opentable.config.util.FileConfigStrategy;
+import com.opentable.config.util.HttpConfigStrategy;
+import com.opentable.config.util.MappedEnvironmentConfiguration;
+import com.opentable.config.util.SnapshotSystemConfiguration;
 
 class ConfigFactory
 {
     private static final Logger LOG = LoggerFactory.getLogger(ConfigFactory.class);
 
+    /** Layer names, reported by {@link Config#getSource(String)}. Configuration files are named by their location. */
+    static final String SYSTEM_PROPERTIES_SOURCE = "systemProperties";
+    static final String ENVIRONMENT_SOURCE = "environment";
+
     private static final Map<String, ? extends ConfigStrategyProvider> STRATEGY_PROVIDERS;
 
     private interface ConfigStrategyProvider
@@ -52,19 +59,33 @@ class ConfigFactory
         STRATEGY_PROVIDERS = ImmutableMap.of(
             "classpath", ClasspathConfigStrategy::new,
             "file", FileConfigStrategy::new,
-            "empty", EmptyConfigStrategy::new
+            "empty", EmptyConfigStrategy::new,
+            "http", HttpConfigStrategy::new,
+            "https", HttpConfigStrategy::new
         );
     }
 
     private final String configName;
     private final URI configLocation;
     private final ConfigStrategy configStrategy;
+    private final boolean snapshotSystemProperties;
+    private final String environmentPrefix;
 
     ConfigFactory(@Nonnull final URI configLocation, @Nullable final String configName)
+    {
+        this(configLocation, configName,
+            Boolean.getBoolean(Config.SNAPSHOT_SYSTEM_PROPERTIES_PROPERTY_NAME),
+            System.getProperty(Config.ENVIRONMENT_PREFIX_PROPERTY_NAME));
+    }
+
+    ConfigFactory(@Nonnull final URI configLocation, @Nullable final String configName,
+        final boolean snapshotSystemProperties, @Nullable final String environmentPrefix)
     {
         this.configLocation = configLocation;
         this.configName = MoreObjects.firstNonNull(configName, "default");
         this.configStrategy = selectConfigStrategy(configLocation);
+        this.snapshotSystemProperties = snapshotSystemProperties;
+        this.environmentPrefix = StringUtils.trimToNull(environmentPrefix);
     }
 
     CombinedConfiguration load()
@@ -87,16 +108,18 @@ class ConfigFactory
         final CombinedConfiguration cc = new CombinedConfiguration(new OverrideCombiner());
 
         // All properties can be overridden by the System properties.
-        cc.addConfiguration(new SystemConfiguration(), "systemProperties");
+        cc.addConfiguration(systemConfiguration(), SYSTEM_PROPERTIES_SOURCE);
         LOG.info("Configuration source: SYSTEM");
 
+        addEnvironmentConfiguration(cc);
+
         for (int i = configPaths.length-1; i >= 0; i--) {
             final String configPath = configPaths[i];
             final AbstractConfiguration subConfig = configStrategy.load(configPath, configPath);
             if (subConfig == null) {
                 throw new IllegalStateException(String.format("Configuration '%s' does not exist!", configPath));
             }
-            cc.addConfiguration(subConfig, configPath);
+            cc.addConfiguration(subConfig, sourceName(configPath));
             LOG.info("New-style configuration source: {}", configPath);
         }
 
@@ -111,9 +134,11 @@ class ConfigFactory
         final CombinedConfiguration cc = new CombinedConfiguration(new OverrideCombiner());
 
         // All properties can be overridden by the System properties.
-        cc.addConfiguration(new SystemConfiguration(), "systemProperties");
+        cc.addConfiguration(systemConfiguration(), SYSTEM_PROPERTIES_SOURCE);
         LOG.info("Configuration source: SYSTEM");
 
+        addEnvironmentConfiguration(cc);
+
         boolean loadedConfig = false;
         for (int i = 0; i < configNames.length; i++) {
             final String configFileName = configNames[configNames.length - i - 1];
@@ -125,7 +150,7 @@ class ConfigFactory
                     throw new IllegalStateException(String.format("Configuration '%s' does not exist!", configFileName));
                 }
                 else {
-                    cc.addConfiguration(subConfig, configFileName);
+                    cc.addConfiguration(subConfig, sourceName(configFilePath));
                     LOG.info("Configuration source: {}", configFileName);
                     loadedConfig = true;
                 }
@@ -142,6 +167,25 @@ class ConfigFactory
         return cc;
     }
 
+    private void addEnvironmentConfiguration(final CombinedConfiguration cc)
+    {
+        // Environment variables override all configuration files, but not System properties.
+        if (environmentPrefix != null) {
+            cc.addConfiguration(MappedEnvironmentConfiguration.forPrefix(environmentPrefix), ENVIRONMENT_SOURCE);
+            LOG.info("Configuration source: ENVIRONMENT ({}_*)", environmentPrefix);
+        }
+    }
+
+    private String sourceName(final String configPath)
+    {
+        return configStrategy.getLocation() + "/" + configPath;
+    }
+
+    private AbstractConfiguration systemConfiguration()
+    {
+        return snapshotSystemProperties ? new SnapshotSystemConfiguration() : new SystemConfiguration();
+    }
+
     private ConfigStrategy selectConfigStrategy(final URI configLocation)
     {
         final ConfigStrategyProvider configStrategyProvider = STRATEGY_PROVIDERS.get(configLocation.getScheme());
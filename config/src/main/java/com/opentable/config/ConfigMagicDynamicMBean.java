@@ -14,33 +14,49 @@
 package com.opentable.config;
 
 import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
 import java.util.Map;
 import java.util.Objects;
 
-import com.google.common.collect.Maps;
+import javax.management.MBeanAttributeInfo;
+
+import com.google.common.collect.ImmutableMap;
 
 import org.skife.config.cglib.core.ReflectUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Export a single ConfigMagic bean to JMX
+ * Export a single ConfigMagic bean to JMX. The getters of the bean are bound once, when the
+ * MBean is created, and attribute values are read from the bean only when a JMX client asks
+ * for them. Getters are not cached across MBeans, so that bean classes can be unloaded.
  */
 class ConfigMagicDynamicMBean extends AbstractDynamicMBean
 {
     private static final String CONFIG_MAGIC_CALLBACKS_NAME = "callbacks";
     private static final Logger LOG = LoggerFactory.getLogger(ConfigMagicDynamicMBean.class);
 
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private final Object configBean;
+    private final Map<String, MethodHandle> getters;
+
     ConfigMagicDynamicMBean(String name, Object configBean)
     {
-        super(name, toMap(configBean));
+        super(name);
+        this.configBean = configBean;
+        this.getters = findGetters(configBean.getClass());
     }
 
-    private static Map<String, Object> toMap(Object configBean)
+    private static Map<String, MethodHandle> findGetters(Class<?> type)
     {
-        PropertyDescriptor[] props = ReflectUtils.getBeanGetters(configBean.getClass());
+        PropertyDescriptor[] props = ReflectUtils.getBeanGetters(type);
 
-        Map<String, Object> result = Maps.newHashMap();
+        ImmutableMap.Builder<String, MethodHandle> result = ImmutableMap.builder();
 
         for (PropertyDescriptor prop : props)
         {
@@ -51,13 +67,48 @@ class ConfigMagicDynamicMBean extends AbstractDynamicMBean
 
             try
             {
-                result.put(prop.getName(), Objects.toString(prop.getReadMethod().invoke(configBean), null));
+                Method readMethod = prop.getReadMethod();
+                readMethod.setAccessible(true);
+                result.put(prop.getName(), LOOKUP.unreflect(readMethod).asType(GETTER_TYPE));
             } catch (Exception e)
             {
-                LOG.error(String.format("For class %s, unable to find config property %s", configBean.getClass(), prop), e);
+                LOG.error(String.format("For class %s, unable to find config property %s", type, prop), e);
             }
         }
 
-        return result;
+        return result.build();
+    }
+
+    @Override
+    protected MBeanAttributeInfo[] createAttributeInfo()
+    {
+        MBeanAttributeInfo[] attribs = new MBeanAttributeInfo[getters.size()];
+        int i = 0;
+        for (String attribute : getters.keySet())
+        {
+            attribs[i++] = new MBeanAttributeInfo(attribute, String.class.getName(), "", true, false, false);
+        }
+        return attribs;
+    }
+
+    @Override
+    protected boolean hasAttribute(String attribute)
+    {
+        return getters.containsKey(attribute);
+    }
+
+    @Override
+    protected Object readAttribute(String attribute)
+    {
+        try
+        {
+            return Objects.toString((Object) getters.get(attribute).invokeExact(configBean), null);
+        } catch (Error e)
+        {
+            throw e;
+        } catch (Throwable t)
+        {
+            throw new IllegalStateException(String.format("For class %s, unable to read config property %s", configBean.getClass(), attribute), t);
+        }
     }
 }
@@ -0,0 +1,705 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.config;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import org.apache.commons.configuration.AbstractConfiguration;
+import org.apache.commons.configuration.CombinedConfiguration;
+import org.apache.commons.configuration.Configuration;
+import org.apache.commons.configuration.interpol.ConfigurationInterpolator;
+import org.skife.config.CommonsConfigSource;
+import org.skife.config.ConfigSource;
+import org.skife.config.ConfigurationObjectFactory;
+
+import com.opentable.config.util.ConfigAccessTracker;
+import com.opentable.config.util.ImmutableConfiguration;
+import com.opentable.config.util.SnapshotConfiguration;
+
+/**
+ * An immutable view of all configuration values at one point in time. Every snapshot carries a generation
+ * number which increases each time the owning {@link Config} observes a change in its configuration sources.
+ *
+ * Callers that read several related keys should pin a snapshot once (or use {@link #getAll(String...)}), so
+ * that all values come from the same generation even if the configuration is reloaded concurrently.
+ *
+ * A snapshot of an overridden configuration is an overlay: it stores only the overridden keys and the keys whose
+ * interpolated values depend on them, and reads all other keys from the snapshot of its parent.
+ */
+public final class ConfigSnapshot
+{
+    private static final Object NULL_OBJECT = new Object();
+
+    private final long generation;
+    private final ConfigSnapshot parent;
+    private final ImmutableSortedMap<String, Object> localValues;
+    private final ImmutableMap<String, Object> templates;
+    private final ImmutableSetMultimap<String, String> dependents;
+    private final Map<String, Object> values;
+
+    /** The layer each local key was read from. Keys of an overlay that are not overridden come from the parent. */
+    private final ImmutableMap<String, String> sources;
+
+    /** Durations in nanoseconds and data sizes in bytes, parsed when the snapshot is built. */
+    private final ImmutableMap<String, Long> durations;
+    private final ImmutableMap<String, Long> sizes;
+    private final SnapshotConfiguration snapshotConfiguration;
+    private final ImmutableConfiguration configuration;
+
+    private final ConfigAccessTracker accessTracker;
+
+    /**
+     * The value source, object factory and shared beans of each bean prefix. Bounded, so that beans built for many
+     * dynamic prefixes do not keep every prefix alive for the lifetime of the snapshot.
+     */
+    private final LoadingCache<Object, BeanFactory> beanFactories = CacheBuilder.newBuilder()
+        .maximumSize(beanCacheSize())
+        .recordStats()
+        .build(new CacheLoader<Object, BeanFactory>() {
+            @Override
+            public BeanFactory load(final Object key)
+            {
+                final String prefix = key == NULL_OBJECT ? null : (String) key;
+                return new BeanFactory(new CommonsConfigSource(prefix == null ? configuration : getConfiguration(prefix)));
+            }
+        });
+
+    /** The keys of each bean class, used by all {@link ChildConfig}s of this snapshot. Bounded like the bean factories. */
+    private final LoadingCache<Class<?>, Optional<Set<String>>> beanKeys = CacheBuilder.newBuilder()
+        .maximumSize(beanCacheSize())
+        .build(new CacheLoader<Class<?>, Optional<Set<String>>>() {
+            @Override
+            public Optional<Set<String>> load(final Class<?> classType)
+            {
+                return findBeanKeys(classType);
+            }
+        });
+
+    /**
+     * Copies all keys and values from the given configuration into a new snapshot. All variable references
+     * are resolved at this point, so reads from the snapshot never interpolate.
+     *
+     * @throws IllegalStateException If the configuration contains a cyclic variable reference.
+     */
+    static ConfigSnapshot of(final long generation, @Nonnull final Configuration source)
+    {
+        return of(generation, source, null);
+    }
+
+    /**
+     * @param accessTracker Records reads from the snapshot, may be null.
+     */
+    static ConfigSnapshot of(final long generation, @Nonnull final Configuration source, @Nullable final ConfigAccessTracker accessTracker)
+    {
+        final Map<String, Object> rawValues = Maps.newHashMap();
+        for (final Iterator<String> it = source.getKeys(); it.hasNext(); ) {
+            final String key = it.next();
+            final Object value = source.getProperty(key);
+            if (value != null) {
+                rawValues.put(key, copyValue(value));
+            }
+        }
+        final ConfigurationInterpolator lookups = source instanceof AbstractConfiguration ? ((AbstractConfiguration) source).getInterpolator() : null;
+        final ImmutableMap<String, String> sources = source instanceof CombinedConfiguration
+            ? sourcesOf((CombinedConfiguration) source, rawValues.keySet())
+            : ImmutableMap.of();
+        return new ConfigSnapshot(generation, null, accessTracker, sources, SnapshotInterpolator.resolve(rawValues, key -> null, lookups));
+    }
+
+    /**
+     * Finds the layer that supplies each key. The first layer that contains a key wins, as in the {@link org.apache.commons.configuration.tree.OverrideCombiner}
+     * used by {@link Config}. Unnamed layers are named by their position.
+     */
+    private static ImmutableMap<String, String> sourcesOf(final CombinedConfiguration source, final Set<String> keys)
+    {
+        final Map<String, String> sources = Maps.newHashMapWithExpectedSize(keys.size());
+        final List<String> names = source.getConfigurationNameList();
+        for (int i = 0; i < source.getNumberOfConfigurations(); i++) {
+            final String name = MoreObjects.firstNonNull(names.get(i), "layer " + i);
+            for (final Iterator<String> it = source.getConfiguration(i).getKeys(); it.hasNext(); ) {
+                final String key = it.next();
+                if (keys.contains(key) && !sources.containsKey(key)) {
+                    sources.put(key, name);
+                }
+            }
+        }
+        return ImmutableMap.copyOf(sources);
+    }
+
+    /**
+     * Creates an overlay snapshot over the given parent. Only the overridden keys and the parent keys whose values
+     * refer to them (directly or through other keys) are resolved, so the cost depends on the number of overrides
+     * and not on the size of the parent.
+     *
+     * @param overrides The raw override values, as returned by {@link #copyValue(Object)}.
+     * @param overrideSources The layer each override was read from.
+     * @throws IllegalStateException If the overrides introduce a cyclic variable reference.
+     */
+    static ConfigSnapshot overlay(final long generation, @Nonnull final ConfigSnapshot parent, @Nonnull final Map<String, Object> overrides,
+                                  @Nonnull final Map<String, String> overrideSources, @Nullable final ConfigurationInterpolator lookups)
+    {
+        final Map<String, Object> rawValues = Maps.newHashMap(overrides);
+        final Deque<String> pending = new ArrayDeque<>(overrides.keySet());
+        while (!pending.isEmpty()) {
+            for (final String dependent : parent.getDependents(pending.remove())) {
+                if (!rawValues.containsKey(dependent)) {
+                    rawValues.put(dependent, parent.getRaw(dependent));
+                    pending.add(dependent);
+                }
+            }
+        }
+        return new ConfigSnapshot(generation, parent, parent.accessTracker, ImmutableMap.copyOf(overrideSources),
+            SnapshotInterpolator.resolve(rawValues, parent.values::get, lookups));
+    }
+
+    /**
+     * Returns a value as it is stored in a snapshot. Collections are copied into immutable lists.
+     */
+    static Object copyValue(final Object value)
+    {
+        return value instanceof Collection ? ImmutableList.copyOf((Collection<?>) value) : value;
+    }
+
+    private ConfigSnapshot(final long generation, @Nullable final ConfigSnapshot parent, @Nullable final ConfigAccessTracker accessTracker,
+                           final ImmutableMap<String, String> sources, final SnapshotInterpolator.Result result)
+    {
+        this.generation = generation;
+        this.parent = parent;
+        this.accessTracker = accessTracker;
+        this.sources = sources;
+        this.localValues = result.values;
+        this.templates = result.templates;
+        this.dependents = result.dependents;
+        this.values = parent == null ? localValues : new OverlayMap(localValues, parent.values);
+
+        final ImmutableMap.Builder<String, Long> durations = ImmutableMap.builder();
+        final ImmutableMap.Builder<String, Long> sizes = ImmutableMap.builder();
+        for (final Map.Entry<String, Object> entry : localValues.entrySet()) {
+            if (entry.getValue() instanceof String) {
+                final String value = (String) entry.getValue();
+                // A value that does not fit into a long is not stored, reading it as a quantity reports the error.
+                try {
+                    final Long nanos = QuantityParser.tryParseDurationNanos(value);
+                    if (nanos != null) {
+                        durations.put(entry.getKey(), nanos);
+                    }
+                }
+                catch (IllegalArgumentException e) {
+                    // Out of range, see above.
+                }
+                try {
+                    final Long bytes = QuantityParser.tryParseBytes(value);
+                    if (bytes != null) {
+                        sizes.put(entry.getKey(), bytes);
+                    }
+                }
+                catch (IllegalArgumentException e) {
+                    // Out of range, see above.
+                }
+            }
+        }
+        this.durations = durations.build();
+        this.sizes = sizes.build();
+
+        this.snapshotConfiguration = new SnapshotConfiguration(values);
+        this.configuration = new ImmutableConfiguration(snapshotConfiguration, accessTracker, null);
+    }
+
+    /**
+     * Returns the generation of this snapshot. Two snapshots of the same {@link Config} with the same generation
+     * contain the same values.
+     */
+    public long getGeneration()
+    {
+        return generation;
+    }
+
+    public int size()
+    {
+        return values.size();
+    }
+
+    public boolean containsKey(final String key)
+    {
+        return values.containsKey(key);
+    }
+
+    /**
+     * Returns the snapshot this overlay reads all keys from that it does not override, or null if this
+     * snapshot is not an overlay.
+     */
+    @Nullable
+    public ConfigSnapshot getParent()
+    {
+        return parent;
+    }
+
+    /**
+     * Returns the name of the configuration layer that supplied the value of a key, e.g. {@code systemProperties} or the
+     * location of a configuration file, or null if the key does not exist or its layer is not known. Keys of an overridden
+     * configuration that were set by an override report {@code override}, or {@code systemProperties} for system property
+     * overrides.
+     */
+    @Nullable
+    public String getSource(final String key)
+    {
+        final String source = sources.get(key);
+        if (source == null && parent != null) {
+            return parent.getSource(key);
+        }
+        return source;
+    }
+
+    /**
+     * Returns all keys of this snapshot in sorted order.
+     */
+    public SortedSet<String> getKeys()
+    {
+        return parent == null ? localValues.keySet() : ((OverlayMap) values).merged().keySet();
+    }
+
+    /**
+     * Returns all keys of this snapshot that start with the given prefix and a dot, in sorted order.
+     */
+    public SortedSet<String> getKeys(final String prefix)
+    {
+        final String start = prefix + ".";
+        // '/' follows '.', so this range holds exactly the keys starting with "prefix."
+        return getKeys().subSet(start, prefix + "/");
+    }
+
+    @Nullable
+    public String getString(final String key)
+    {
+        return configuration.getString(key);
+    }
+
+    /**
+     * Reads a value without recording the access, for diagnostics such as JMX and logging.
+     */
+    @Nullable
+    String peekString(final String key)
+    {
+        return snapshotConfiguration.getString(key);
+    }
+
+    /**
+     * Returns the elements of a list value, or a single element list for a plain value. List values are split
+     * when the snapshot is built, so this returns the stored immutable list without copying it.
+     */
+    @SuppressWarnings("unchecked")
+    public List<String> getStringList(final String key)
+    {
+        recordAccess(key);
+        final Object value = values.get(key);
+        if (value == null) {
+            return ImmutableList.of();
+        }
+        else if (value instanceof List) {
+            final List<?> list = (List<?>) value;
+            for (final Object element : list) {
+                if (!(element instanceof String)) {
+                    return ImmutableList.copyOf(Lists.transform(list, String::valueOf));
+                }
+            }
+            return (List<String>) list;
+        }
+        return ImmutableList.of(value.toString());
+    }
+
+    /**
+     * Returns a duration value such as {@code 30s} or {@code 250ms}, or null if the key has no value.
+     *
+     * @throws IllegalArgumentException If the value is not a duration.
+     */
+    @Nullable
+    public Duration getDuration(final String key)
+    {
+        final Long nanos = getQuantity(key, true);
+        return nanos == null ? null : Duration.ofNanos(nanos);
+    }
+
+    /**
+     * Returns a duration value in nanoseconds. Durations are parsed when the snapshot is built, so this only
+     * reads the stored value.
+     *
+     * @throws IllegalArgumentException If the value is not a duration.
+     */
+    public long getDurationNanos(final String key, final long defaultValue)
+    {
+        final Long nanos = getQuantity(key, true);
+        return nanos == null ? defaultValue : nanos;
+    }
+
+    /**
+     * Returns a data size value such as {@code 512MB}, or null if the key has no value.
+     *
+     * @throws IllegalArgumentException If the value is not a data size.
+     */
+    @Nullable
+    public DataSize getDataSize(final String key)
+    {
+        final Long bytes = getQuantity(key, false);
+        return bytes == null ? null : DataSize.ofBytes(bytes);
+    }
+
+    /**
+     * Returns a data size value in bytes. Data sizes are parsed when the snapshot is built, so this only
+     * reads the stored value.
+     *
+     * @throws IllegalArgumentException If the value is not a data size.
+     */
+    public long getBytes(final String key, final long defaultValue)
+    {
+        final Long bytes = getQuantity(key, false);
+        return bytes == null ? defaultValue : bytes;
+    }
+
+    private void recordAccess(final String key)
+    {
+        if (accessTracker != null) {
+            accessTracker.record(key);
+        }
+    }
+
+    @Nullable
+    private Long getQuantity(final String key, final boolean duration)
+    {
+        recordAccess(key);
+        return findQuantity(key, duration);
+    }
+
+    @Nullable
+    private Long findQuantity(final String key, final boolean duration)
+    {
+        final Long result = (duration ? durations : sizes).get(key);
+        if (result != null) {
+            return result;
+        }
+        if (parent != null && !localValues.containsKey(key)) {
+            return parent.findQuantity(key, duration);
+        }
+        final String value = snapshotConfiguration.getString(key);
+        if (value == null) {
+            return null;
+        }
+        try {
+            // Not parsed at build time, this throws with a description of what is wrong with the value.
+            return duration ? QuantityParser.parseDurationNanos(value) : QuantityParser.parseBytes(value);
+        }
+        catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(String.format("Invalid value for configuration key '%s': %s", key, e.getMessage()), e);
+        }
+    }
+
+    /**
+     * Reads all given keys from this snapshot. Keys without a value are not present in the resulting map,
+     * the iteration order of the result follows the order of the keys passed in.
+     */
+    public Map<String, String> getAll(final String ... keys)
+    {
+        final ImmutableMap.Builder<String, String> builder = ImmutableMap.builder();
+        for (final String key : keys) {
+            final String value = configuration.getString(key);
+            if (value != null) {
+                builder.put(key, value);
+            }
+        }
+        return builder.build();
+    }
+
+    public AbstractConfiguration getConfiguration()
+    {
+        return configuration;
+    }
+
+    public AbstractConfiguration getConfiguration(final String prefix)
+    {
+        return new ImmutableConfiguration(snapshotConfiguration.subset(prefix), accessTracker, prefix);
+    }
+
+    /**
+     * Builds a configuration bean from the values of this snapshot. Beans with an implementation generated by
+     * {@code otj-config-processor} are built from that implementation unless replacements are given.
+     *
+     * @see Config#getBean(String, Class, Map)
+     */
+    public <T> T getBean(@Nullable final String prefix, final Class<T> classType, @Nullable final Map<String, String> replacements)
+    {
+        return buildBean(beanFactories.getUnchecked(Objects.firstNonNull(prefix, NULL_OBJECT)), classType, replacements);
+    }
+
+    private static <T> T buildBean(final BeanFactory beanFactory, final Class<T> classType, @Nullable final Map<String, String> replacements)
+    {
+        if (replacements == null || replacements.isEmpty()) {
+            final T bean = GeneratedBeans.build(classType, beanFactory.source);
+            if (bean != null) {
+                return bean;
+            }
+        }
+        return beanFactory.getObjectFactory().buildWithReplacements(classType, replacements);
+    }
+
+    /**
+     * Returns hit, miss and eviction counts of the per-prefix bean factories of this snapshot.
+     */
+    public CacheStats getBeanFactoryStats()
+    {
+        return beanFactories.stats();
+    }
+
+    /**
+     * Creates a child config that overrides a few keys of this snapshot. The array is not copied.
+     *
+     * @param keyValuePairs Alternating keys and values, must contain an even number of elements.
+     */
+    public ChildConfig withOverrides(@Nonnull final String ... keyValuePairs)
+    {
+        return new ChildConfig(this, keyValuePairs);
+    }
+
+    /**
+     * Returns the keys read by a configuration bean, relative to its prefix. If any key contains a replacement,
+     * the keys are not known up front and nothing is returned.
+     */
+    Optional<Set<String>> getBeanKeys(final Class<?> classType)
+    {
+        return beanKeys.getUnchecked(classType);
+    }
+
+    private static Optional<Set<String>> findBeanKeys(final Class<?> classType)
+    {
+        final ImmutableSet.Builder<String> builder = ImmutableSet.builder();
+        boolean replacements = false;
+        for (final Method method : classType.getMethods()) {
+            final org.skife.config.Config annotation = method.getAnnotation(org.skife.config.Config.class);
+            if (annotation != null) {
+                for (final String key : annotation.value()) {
+                    replacements |= key.contains("${");
+                    builder.add(key);
+                }
+            }
+        }
+        return replacements ? Optional.<Set<String>>empty() : Optional.<Set<String>>of(builder.build());
+    }
+
+    /**
+     * Returns a configuration bean that is built only once for this snapshot. Shared beans are kept with the bean
+     * factory of their prefix, so they are dropped together with it.
+     */
+    <T> T getSharedBean(@Nullable final String prefix, final Class<T> classType)
+    {
+        final BeanFactory beanFactory = beanFactories.getUnchecked(Objects.firstNonNull(prefix, NULL_OBJECT));
+        Object bean = beanFactory.sharedBeans.get(classType);
+        if (bean == null) {
+            bean = buildBean(beanFactory, classType, null);
+            bean = Objects.firstNonNull(beanFactory.sharedBeans.putIfAbsent(classType, bean), bean);
+        }
+        return classType.cast(bean);
+    }
+
+    private static int beanCacheSize()
+    {
+        return Integer.getInteger(Config.BEAN_FACTORY_CACHE_SIZE_PROPERTY_NAME, Config.DEFAULT_BEAN_FACTORY_CACHE_SIZE);
+    }
+
+    /**
+     * Creates a factory for configuration beans that also binds {@link Duration} and {@link DataSize} properties.
+     */
+    static ConfigurationObjectFactory newObjectFactory(final ConfigSource source)
+    {
+        final ConfigurationObjectFactory factory = new ConfigurationObjectFactory(source);
+        factory.addCoercible(QuantityParser.DURATION_COERCIBLE);
+        factory.addCoercible(QuantityParser.DATA_SIZE_COERCIBLE);
+        return factory;
+    }
+
+    /**
+     * The value source of one prefix, and the config-magic factory over it. Generated beans only need the source,
+     * so the factory is created on first use. Only the source is per prefix: config-magic generates the proxy class
+     * of a bean type once and shares it between all factories, as {@link GeneratedBeans} does for generated beans.
+     */
+    private static final class BeanFactory
+    {
+        private final ConfigSource source;
+        private final ConcurrentMap<Class<?>, Object> sharedBeans = Maps.newConcurrentMap();
+        private volatile ConfigurationObjectFactory objectFactory;
+
+        BeanFactory(final ConfigSource source)
+        {
+            this.source = source;
+        }
+
+        ConfigurationObjectFactory getObjectFactory()
+        {
+            ConfigurationObjectFactory factory = objectFactory;
+            if (factory == null) {
+                // A race builds two equivalent factories, one of which is dropped.
+                factory = newObjectFactory(source);
+                objectFactory = factory;
+            }
+            return factory;
+        }
+    }
+
+    /**
+     * Returns all keys whose value differs between this and the given snapshot, including keys that are
+     * present in only one of them.
+     */
+    public SortedSet<String> getChangedKeys(final ConfigSnapshot other)
+    {
+        // Two overlays of the same parent can only differ in their own keys.
+        final Set<String> keys = parent != null && parent == other.parent
+            ? Sets.union(localValues.keySet(), other.localValues.keySet())
+            : Sets.union(values.keySet(), other.values.keySet());
+
+        final ImmutableSortedSet.Builder<String> builder = ImmutableSortedSet.naturalOrder();
+        for (final String key : keys) {
+            if (!Objects.equal(values.get(key), other.values.get(key))) {
+                builder.add(key);
+            }
+        }
+        return builder.build();
+    }
+
+    boolean hasSameValues(final ConfigSnapshot other)
+    {
+        if (parent != null && parent == other.parent) {
+            return localValues.equals(other.localValues);
+        }
+        return values.equals(other.values);
+    }
+
+    /**
+     * Returns the value of a key before interpolation.
+     */
+    @Nullable
+    private Object getRaw(final String key)
+    {
+        final Object value = localValues.get(key);
+        if (value != null) {
+            return Objects.firstNonNull(templates.get(key), value);
+        }
+        return parent == null ? null : parent.getRaw(key);
+    }
+
+    /**
+     * Returns all keys whose value refers to the given key.
+     */
+    private Set<String> getDependents(final String key)
+    {
+        if (parent == null) {
+            return dependents.get(key);
+        }
+        return ImmutableSet.<String>builder().addAll(dependents.get(key)).addAll(parent.getDependents(key)).build();
+    }
+
+    /**
+     * The values of an overlay. Single key reads check the overlay first and then the parent, iteration
+     * merges both into a sorted map once.
+     */
+    private static final class OverlayMap extends AbstractMap<String, Object>
+    {
+        private final Map<String, Object> localValues;
+        private final Map<String, Object> parentValues;
+
+        private volatile ImmutableSortedMap<String, Object> merged = null;
+
+        OverlayMap(final Map<String, Object> localValues, final Map<String, Object> parentValues)
+        {
+            this.localValues = localValues;
+            this.parentValues = parentValues;
+        }
+
+        @Override
+        public Object get(final Object key)
+        {
+            final Object value = localValues.get(key);
+            return value != null ? value : parentValues.get(key);
+        }
+
+        @Override
+        public boolean containsKey(final Object key)
+        {
+            return localValues.containsKey(key) || parentValues.containsKey(key);
+        }
+
+        @Override
+        public boolean isEmpty()
+        {
+            return localValues.isEmpty() && parentValues.isEmpty();
+        }
+
+        @Override
+        public int size()
+        {
+            return merged().size();
+        }
+
+        @Override
+        public Set<Map.Entry<String, Object>> entrySet()
+        {
+            return merged().entrySet();
+        }
+
+        @Override
+        public Set<String> keySet()
+        {
+            return merged().keySet();
+        }
+
+        ImmutableSortedMap<String, Object> merged()
+        {
+            ImmutableSortedMap<String, Object> result = merged;
+            if (result == null) {
+                final Map<String, Object> combined = Maps.newHashMap(parentValues);
+                combined.putAll(localValues);
+                result = ImmutableSortedMap.copyOf(combined);
+                merged = result;
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.config;
+
+import java.util.List;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Export the key sources of a Config to JMX.
+ */
+class ConfigSources implements ConfigSourcesMXBean
+{
+    private final Config config;
+
+    ConfigSources(Config config)
+    {
+        this.config = config;
+    }
+
+    @Override
+    public String source(String key)
+    {
+        return config.getSource(key);
+    }
+
+    @Override
+    public String[] keysFrom(String source)
+    {
+        ConfigSnapshot snapshot = config.getSnapshot();
+        List<String> keys = Lists.newArrayList();
+        for (String key : snapshot.getKeys())
+        {
+            if (source.equals(snapshot.getSource(key)))
+            {
+                keys.add(key);
+            }
+        }
+        return keys.toArray(new String[keys.size()]);
+    }
+}
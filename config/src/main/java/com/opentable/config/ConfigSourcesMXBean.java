@@ -0,0 +1,32 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.config;
+
+/**
+ * JMX view of the configuration layer that supplied each key.
+ *
+ * @see Config#getSource(String)
+ */
+public interface ConfigSourcesMXBean
+{
+    /**
+     * The layer that supplied a key, e.g. "systemProperties" or the location of a configuration file.
+     */
+    String source(String key);
+
+    /**
+     * All keys supplied by a layer.
+     */
+    String[] keysFrom(String source);
+}
@@ -0,0 +1,88 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.config;
+
+import javax.annotation.Nonnull;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * An amount of data, such as {@code 512MB}. Units are powers of 1024, {@code KB} and {@code KiB} are the same.
+ * Configuration values of this type are parsed once when a snapshot is built and can be bound to
+ * configuration beans.
+ */
+public final class DataSize implements Comparable<DataSize>
+{
+    private final long bytes;
+
+    private DataSize(final long bytes)
+    {
+        Preconditions.checkArgument(bytes >= 0, "negative data size %s", bytes);
+        this.bytes = bytes;
+    }
+
+    public static DataSize ofBytes(final long bytes)
+    {
+        return new DataSize(bytes);
+    }
+
+    /**
+     * Parses a value such as {@code 512MB} or {@code 1.5 GiB}.
+     *
+     * @throws IllegalArgumentException If the value is not a data size.
+     */
+    public static DataSize parse(@Nonnull final String value)
+    {
+        return new DataSize(QuantityParser.parseBytes(value));
+    }
+
+    public long toBytes()
+    {
+        return bytes;
+    }
+
+    public long toKilobytes()
+    {
+        return bytes >> 10;
+    }
+
+    public long toMegabytes()
+    {
+        return bytes >> 20;
+    }
+
+    @Override
+    public int compareTo(final DataSize other)
+    {
+        return Long.compare(bytes, other.bytes);
+    }
+
+    @Override
+    public boolean equals(final Object other)
+    {
+        return other instanceof DataSize && ((DataSize) other).bytes == bytes;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Long.hashCode(bytes);
+    }
+
+    @Override
+    public String toString()
+    {
+        return bytes + "B";
+    }
+}
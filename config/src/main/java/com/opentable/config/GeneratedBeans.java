@@ -0,0 +1,84 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.config;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Optional;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Throwables;
+
+import org.skife.config.ConfigSource;
+
+/**
+ * Finds the bean implementations generated by {@code otj-config-processor}. The implementation of
+ * {@code com.example.Outer$DbConfig} is {@code com.example.Outer_DbConfig_ConfigBean}, with a public
+ * constructor that takes the {@link ConfigSource} to read from.
+ */
+final class GeneratedBeans
+{
+    static final String SUFFIX = "_ConfigBean";
+
+    private static final ClassValue<Optional<Constructor<?>>> CONSTRUCTORS = new ClassValue<Optional<Constructor<?>>>()
+    {
+        @Override
+        protected Optional<Constructor<?>> computeValue(final Class<?> type)
+        {
+            try {
+                final Class<?> implementation = Class.forName(implementationName(type), true, type.getClassLoader());
+                if (!type.isAssignableFrom(implementation)) {
+                    return Optional.empty();
+                }
+                return Optional.<Constructor<?>>of(implementation.getConstructor(ConfigSource.class));
+            }
+            catch (ClassNotFoundException | NoSuchMethodException e) {
+                return Optional.empty();
+            }
+        }
+    };
+
+    private GeneratedBeans()
+    {
+    }
+
+    static String implementationName(final Class<?> type)
+    {
+        final String name = type.getName();
+        final int dot = name.lastIndexOf('.');
+        return name.substring(0, dot + 1) + name.substring(dot + 1).replace('$', '_') + SUFFIX;
+    }
+
+    /**
+     * Builds a bean from its generated implementation, or returns null if there is none.
+     */
+    @Nullable
+    static <T> T build(final Class<T> type, final ConfigSource source)
+    {
+        final Optional<Constructor<?>> constructor = CONSTRUCTORS.get(type);
+        if (!constructor.isPresent()) {
+            return null;
+        }
+        try {
+            return type.cast(constructor.get().newInstance(source));
+        }
+        catch (InvocationTargetException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+        catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create " + constructor.get().getDeclaringClass().getName(), e);
+        }
+    }
+}
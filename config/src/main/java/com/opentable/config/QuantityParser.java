@@ -0,0 +1,207 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.config;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import com.google.common.collect.ImmutableMap;
+
+import org.skife.config.Coercible;
+
+/**
+ * Parses durations such as {@code 30s} or {@code 250ms} and data sizes such as {@code 512MB}. A value is a number,
+ * optionally with a fraction, followed by a unit. Spaces between the number and the unit are allowed, units are not
+ * case-sensitive, and data sizes may leave out the {@code B} ({@code 512m}). Zero needs no unit.
+ */
+final class QuantityParser
+{
+    /** Keyed by lower case unit. */
+    private static final Map<String, Long> DURATION_UNITS = ImmutableMap.<String, Long>builder()
+        .put("ns", 1L)
+        .put("us", TimeUnit.MICROSECONDS.toNanos(1))
+        .put("ms", TimeUnit.MILLISECONDS.toNanos(1))
+        .put("s", TimeUnit.SECONDS.toNanos(1))
+        .put("m", TimeUnit.MINUTES.toNanos(1))
+        .put("min", TimeUnit.MINUTES.toNanos(1))
+        .put("h", TimeUnit.HOURS.toNanos(1))
+        .put("d", TimeUnit.DAYS.toNanos(1))
+        .build();
+
+    /** Keyed by upper case unit. */
+    private static final Map<String, Long> SIZE_UNITS = ImmutableMap.<String, Long>builder()
+        .put("B", 1L)
+        .put("K", 1L << 10).put("KB", 1L << 10).put("KIB", 1L << 10)
+        .put("M", 1L << 20).put("MB", 1L << 20).put("MIB", 1L << 20)
+        .put("G", 1L << 30).put("GB", 1L << 30).put("GIB", 1L << 30)
+        .put("T", 1L << 40).put("TB", 1L << 40).put("TIB", 1L << 40)
+        .build();
+
+    /** Binds {@link Duration} properties of configuration beans. */
+    static final Coercible<Duration> DURATION_COERCIBLE = clazz -> clazz == Duration.class
+        ? value -> value == null ? null : Duration.ofNanos(parseDurationNanos(value))
+        : null;
+
+    /** Binds {@link DataSize} properties of configuration beans. */
+    static final Coercible<DataSize> DATA_SIZE_COERCIBLE = clazz -> clazz == DataSize.class
+        ? value -> value == null ? null : DataSize.parse(value)
+        : null;
+
+    private QuantityParser()
+    {
+    }
+
+    /**
+     * @throws IllegalArgumentException If the value is not a duration.
+     */
+    static long parseDurationNanos(final String value)
+    {
+        return parse(value, true, "duration, e.g. 30s or 250ms");
+    }
+
+    /**
+     * @throws IllegalArgumentException If the value is not a data size.
+     */
+    static long parseBytes(final String value)
+    {
+        return parse(value, false, "data size, e.g. 512MB");
+    }
+
+    /**
+     * Returns the duration in nanoseconds if the value has a duration unit, otherwise null.
+     *
+     * @throws IllegalArgumentException If the value has a duration unit but does not fit into a long.
+     */
+    @Nullable
+    static Long tryParseDurationNanos(final String value)
+    {
+        return tryParse(value, true);
+    }
+
+    /**
+     * Returns the size in bytes if the value has a data size unit, otherwise null.
+     *
+     * @throws IllegalArgumentException If the value has a data size unit but does not fit into a long.
+     */
+    @Nullable
+    static Long tryParseBytes(final String value)
+    {
+        return tryParse(value, false);
+    }
+
+    @Nullable
+    private static Long tryParse(final String value, final boolean duration)
+    {
+        final String [] parts = split(value);
+        if (parts == null) {
+            return null;
+        }
+        if (parts[1].isEmpty()) {
+            return isZero(parts[0]) ? 0L : null;
+        }
+        final Long factor = factor(parts[1], duration);
+        return factor == null ? null : multiply(value, parts[0], factor);
+    }
+
+    private static long parse(final String value, final boolean duration, final String expected)
+    {
+        final String [] parts = split(value);
+        if (parts == null || (parts[1].isEmpty() && !isZero(parts[0]))) {
+            throw new IllegalArgumentException(String.format("'%s' is not a %s", value, expected));
+        }
+        if (parts[1].isEmpty()) {
+            return 0;
+        }
+        final Long factor = factor(parts[1], duration);
+        if (factor == null) {
+            throw new IllegalArgumentException(String.format("'%s' has unknown unit '%s', expected a %s", value, parts[1], expected));
+        }
+        return multiply(value, parts[0], factor);
+    }
+
+    @Nullable
+    private static Long factor(final String unit, final boolean duration)
+    {
+        return duration ? DURATION_UNITS.get(unit.toLowerCase(Locale.ROOT)) : SIZE_UNITS.get(unit.toUpperCase(Locale.ROOT));
+    }
+
+    private static boolean isZero(final String number)
+    {
+        for (int i = 0; i < number.length(); i++) {
+            if (number.charAt(i) != '0' && number.charAt(i) != '.') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long multiply(final String value, final String number, final long factor)
+    {
+        try {
+            return new BigDecimal(number).multiply(BigDecimal.valueOf(factor)).toBigInteger().longValueExact();
+        }
+        catch (ArithmeticException e) {
+            throw new IllegalArgumentException(String.format("'%s' is out of range", value), e);
+        }
+    }
+
+    /**
+     * Splits a value into number and unit, or returns null if it does not have that shape. The unit of a plain
+     * number is empty.
+     */
+    @Nullable
+    private static String [] split(final String value)
+    {
+        final String text = value.trim();
+        final int length = text.length();
+
+        int pos = 0;
+        boolean fraction = false;
+        while (pos < length) {
+            final char c = text.charAt(pos);
+            if (c == '.' && !fraction && pos > 0) {
+                fraction = true;
+            }
+            else if (c < '0' || c > '9') {
+                break;
+            }
+            pos++;
+        }
+        if (pos == 0 || text.charAt(pos - 1) == '.') {
+            return null;
+        }
+
+        if (pos == length) {
+            return new String [] { text, "" };
+        }
+        int unitStart = pos;
+        while (unitStart < length && text.charAt(unitStart) == ' ') {
+            unitStart++;
+        }
+        if (unitStart == length) {
+            return null;
+        }
+        for (int i = unitStart; i < length; i++) {
+            if (!Character.isLetter(text.charAt(i))) {
+                return null;
+            }
+        }
+        return new String [] { text.substring(0, pos), text.substring(unitStart) };
+    }
+}
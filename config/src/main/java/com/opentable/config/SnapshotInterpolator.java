@@ -0,0 +1,197 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.config;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Maps;
+
+import org.apache.commons.configuration.interpol.ConfigurationInterpolator;
+
+/**
+ * Resolves all {@code ${key}} references of a snapshot once, when the snapshot is built. The syntax follows
+ * commons-configuration: {@code $${} escapes a literal {@code ${}, references with a lookup prefix such as
+ * {@code ${sys:user.home}} go to the given interpolator and unresolvable references are kept verbatim.
+ * Unlike commons-configuration, a cyclic reference fails at load time rather than on the first read.
+ *
+ * The raw value of every key that contained a reference and the keys it refers to, resolved or not, are recorded,
+ * so that an overlay can resolve again exactly those keys that depend on one of its overrides.
+ */
+final class SnapshotInterpolator
+{
+    private static final String VAR_START = "${";
+    private static final char VAR_END = '}';
+    private static final char ESCAPE = '$';
+
+    private final Map<String, Object> rawValues;
+    private final Function<String, Object> resolvedBase;
+    private final ConfigurationInterpolator lookups;
+
+    private final Map<String, Object> resolvedValues = Maps.newHashMap();
+    private final LinkedHashSet<String> resolving = new LinkedHashSet<>();
+
+    private final ImmutableMap.Builder<String, Object> templates = ImmutableMap.builder();
+    private final ImmutableSetMultimap.Builder<String, String> dependents = ImmutableSetMultimap.builder();
+
+    private SnapshotInterpolator(final Map<String, Object> rawValues,
+                                 final Function<String, Object> resolvedBase,
+                                 @Nullable final ConfigurationInterpolator lookups)
+    {
+        this.rawValues = rawValues;
+        this.resolvedBase = resolvedBase;
+        this.lookups = lookups;
+    }
+
+    /**
+     * Resolves all given values.
+     *
+     * @param rawValues The values to resolve.
+     * @param resolvedBase Returns the final value of keys that are referenced but not part of the raw values, or null.
+     * @param lookups Resolves references with a lookup prefix, may be null.
+     * @throws IllegalStateException If the values contain a cyclic reference.
+     */
+    static Result resolve(final Map<String, Object> rawValues,
+                          final Function<String, Object> resolvedBase,
+                          @Nullable final ConfigurationInterpolator lookups)
+    {
+        final SnapshotInterpolator interpolator = new SnapshotInterpolator(rawValues, resolvedBase, lookups);
+        final ImmutableSortedMap.Builder<String, Object> builder = ImmutableSortedMap.naturalOrder();
+        for (final String key : rawValues.keySet()) {
+            builder.put(key, interpolator.resolveKey(key));
+        }
+        return new Result(builder.build(), interpolator.templates.build(), interpolator.dependents.build());
+    }
+
+    static final class Result
+    {
+        /** All resolved values. */
+        final ImmutableSortedMap<String, Object> values;
+        /** The raw value of every key that contained a reference. */
+        final ImmutableMap<String, Object> templates;
+        /** Maps each referenced key to the keys that refer to it. */
+        final ImmutableSetMultimap<String, String> dependents;
+
+        private Result(final ImmutableSortedMap<String, Object> values,
+                       final ImmutableMap<String, Object> templates,
+                       final ImmutableSetMultimap<String, String> dependents)
+        {
+            this.values = values;
+            this.templates = templates;
+            this.dependents = dependents;
+        }
+    }
+
+    private Object resolveKey(final String key)
+    {
+        Object resolved = resolvedValues.get(key);
+        if (resolved != null) {
+            return resolved;
+        }
+
+        if (!resolving.add(key)) {
+            throw new IllegalStateException(String.format("Cyclic reference in configuration: %s -> %s",
+                Joiner.on(" -> ").join(resolving), key));
+        }
+
+        final Object raw = rawValues.get(key);
+        if (raw instanceof String) {
+            resolved = interpolate(key, (String) raw);
+        }
+        else if (raw instanceof List) {
+            final ImmutableList.Builder<Object> builder = ImmutableList.builder();
+            for (final Object element : (List<?>) raw) {
+                builder.add(element instanceof String ? interpolate(key, (String) element) : element);
+            }
+            resolved = builder.build();
+        }
+        else {
+            resolved = raw;
+        }
+
+        if (!resolved.equals(raw)) {
+            templates.put(key, raw);
+        }
+
+        resolving.remove(key);
+        resolvedValues.put(key, resolved);
+        return resolved;
+    }
+
+    private String interpolate(final String key, final String value)
+    {
+        int start = value.indexOf(VAR_START);
+        if (start < 0) {
+            return value;
+        }
+
+        final StringBuilder sb = new StringBuilder(value.length());
+        int pos = 0;
+        while (start >= 0) {
+            final int end = value.indexOf(VAR_END, start + VAR_START.length());
+            if (end < 0) {
+                break;
+            }
+
+            if (start > 0 && value.charAt(start - 1) == ESCAPE) {
+                // "$${name}" is the literal "${name}".
+                sb.append(value, pos, start - 1).append(value, start, end + 1);
+            }
+            else {
+                final String name = value.substring(start + VAR_START.length(), end);
+                final String replacement = lookup(key, name);
+                sb.append(value, pos, start).append(replacement != null ? replacement : value.substring(start, end + 1));
+            }
+            pos = end + 1;
+            start = value.indexOf(VAR_START, pos);
+        }
+        sb.append(value, pos, value.length());
+        return sb.toString();
+    }
+
+    @Nullable
+    private String lookup(final String key, final String name)
+    {
+        Object value = null;
+        if (rawValues.containsKey(name)) {
+            value = resolveKey(name);
+        }
+        else {
+            value = resolvedBase.apply(name);
+        }
+
+        // Recorded even if the reference does not resolve, so that an overlay which supplies the key resolves it.
+        dependents.put(name, key);
+        if (value != null) {
+            if (value instanceof List) {
+                final List<?> list = (List<?>) value;
+                return list.isEmpty() ? null : String.valueOf(list.get(0));
+            }
+            return String.valueOf(value);
+        }
+        if (lookups != null && name.indexOf(':') > 0) {
+            return lookups.lookup(name);
+        }
+        return null;
+    }
+}
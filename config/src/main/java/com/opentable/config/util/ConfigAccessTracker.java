@@ -0,0 +1,139 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.config.util;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SortedSet;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Counts reads per configuration key. With a sample rate of n, only one in n reads is counted (at random),
+ * and counted reads add n, so counts are estimates that cost a fraction of an exact count.
+ */
+public final class ConfigAccessTracker
+{
+    private static final Comparator<Map.Entry<String, Long>> BY_COUNT = (a, b) -> Long.compare(a.getValue(), b.getValue());
+
+    private final int sampleRate;
+    private final ConcurrentMap<String, LongAdder> counters = Maps.newConcurrentMap();
+
+    public ConfigAccessTracker(final int sampleRate)
+    {
+        Preconditions.checkArgument(sampleRate > 0, "sample rate must be positive, was %s", sampleRate);
+        this.sampleRate = sampleRate;
+    }
+
+    public int getSampleRate()
+    {
+        return sampleRate;
+    }
+
+    public void record(final String key)
+    {
+        if (sample()) {
+            recordSampled(key);
+        }
+    }
+
+    /**
+     * Decides whether to count the current read. Callers that have to build the key first check this, so that
+     * reads that are not counted cost nothing more.
+     */
+    public boolean sample()
+    {
+        return sampleRate == 1 || ThreadLocalRandom.current().nextInt(sampleRate) == 0;
+    }
+
+    /**
+     * Counts a read for which {@link #sample()} returned true.
+     */
+    public void recordSampled(final String key)
+    {
+        LongAdder counter = counters.get(key);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(key, k -> new LongAdder());
+        }
+        counter.add(sampleRate);
+    }
+
+    /**
+     * Returns the (estimated) number of reads of a key.
+     */
+    public long getCount(final String key)
+    {
+        final LongAdder counter = counters.get(key);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    /**
+     * Returns the most often read keys with their counts, most read first.
+     */
+    public List<Map.Entry<String, Long>> getHotKeys(final int limit)
+    {
+        final PriorityQueue<Map.Entry<String, Long>> top = new PriorityQueue<>(Math.max(1, limit), BY_COUNT);
+        for (final Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+            top.add(Maps.immutableEntry(entry.getKey(), entry.getValue().sum()));
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+        final List<Map.Entry<String, Long>> result = Lists.newArrayList(top);
+        result.sort(BY_COUNT.reversed());
+        return ImmutableList.copyOf(result);
+    }
+
+    /**
+     * Returns all given keys that were never read.
+     */
+    public SortedSet<String> getNeverReadKeys(final Iterable<String> keys)
+    {
+        final ImmutableSortedSet.Builder<String> builder = ImmutableSortedSet.naturalOrder();
+        for (final String key : keys) {
+            if (!counters.containsKey(key)) {
+                builder.add(key);
+            }
+        }
+        return builder.build();
+    }
+
+    public void reset()
+    {
+        counters.clear();
+    }
+
+    /**
+     * Writes one line per read key, most read first, followed by the given keys that were never read.
+     */
+    public void dumpTo(final Appendable out, final Iterable<String> keys) throws IOException
+    {
+        for (final Map.Entry<String, Long> entry : getHotKeys(counters.size())) {
+            out.append(entry.getKey()).append(' ').append(Long.toString(entry.getValue())).append('\n');
+        }
+        for (final String key : getNeverReadKeys(keys)) {
+            out.append(key).append(" 0\n");
+        }
+    }
+}
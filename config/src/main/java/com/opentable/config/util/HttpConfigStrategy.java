@@ -0,0 +1,224 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.config.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.concurrent.GuardedBy;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import org.apache.commons.configuration.AbstractConfiguration;
+import org.apache.commons.configuration.ConfigurationException;
+import org.apache.commons.configuration.PropertiesConfiguration;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads configuration layers from a configuration service over {@code http:} or {@code https:}.
+ *
+ * Every layer that was found is polled in the background using conditional requests ({@code If-None-Match} and
+ * {@code If-Modified-Since}), so an unchanged document costs a single 304 response and is not parsed again.
+ * A changed document replaces the contents of its layer, which in turn makes the owning
+ * {@link com.opentable.config.Config} publish a new snapshot.
+ */
+public class HttpConfigStrategy extends AbstractConfigStrategy implements Closeable
+{
+    private static final Logger LOG = LoggerFactory.getLogger(HttpConfigStrategy.class);
+
+    public static final long DEFAULT_POLL_INTERVAL_SECONDS = 30;
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 5000;
+    private static final int READ_TIMEOUT_MILLIS = 10000;
+
+    private final long pollIntervalMillis;
+    private final List<HttpConfigSource> sources = new CopyOnWriteArrayList<>();
+
+    @GuardedBy("this")
+    private ScheduledExecutorService poller;
+
+    public HttpConfigStrategy(final URI configLocation)
+    {
+        this(configLocation, DEFAULT_POLL_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public HttpConfigStrategy(final URI configLocation, final long pollInterval, final TimeUnit pollIntervalUnit)
+    {
+        super(configLocation);
+        this.pollIntervalMillis = pollIntervalUnit.toMillis(pollInterval);
+        LOG.trace("Searching for configuration at '{}'.", configLocation);
+    }
+
+    @Override
+    public AbstractConfiguration load(final String configName, final String configPath)
+        throws ConfigurationException
+    {
+        final String base = StringUtils.removeEnd(getLocation().toString(), "/");
+
+        // A property configuration lives in a configuration directory and is called
+        // "config.properties"
+        final String [] propertyUrls = new String [] {
+            base + "/" + configPath + "/config.properties",
+            base + "/" + configName + ".properties"
+        };
+
+        for (final String propertyUrl : propertyUrls) {
+            LOG.trace("Trying to load '{}'...", propertyUrl);
+            final HttpConfigSource source = new HttpConfigSource(toUrl(propertyUrl));
+            final PropertiesConfiguration config = source.fetch();
+            if (config != null) {
+                LOG.trace("... succeeded");
+                source.layer = new ReloadableConfiguration(config);
+                sources.add(source);
+                schedule(source);
+                return source.layer;
+            }
+            else {
+                LOG.trace("... failed");
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Poll all loaded layers once, on the calling thread.
+     */
+    void pollNow()
+    {
+        for (final HttpConfigSource source : sources) {
+            source.poll();
+        }
+    }
+
+    @Override
+    public synchronized void close()
+    {
+        if (poller != null) {
+            poller.shutdownNow();
+            poller = null;
+        }
+    }
+
+    private synchronized void schedule(final HttpConfigSource source)
+    {
+        if (pollIntervalMillis <= 0) {
+            return;
+        }
+        if (poller == null) {
+            poller = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("config-http-poller-%d")
+                .setDaemon(true)
+                .build());
+        }
+        poller.scheduleWithFixedDelay(source::poll, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static URL toUrl(final String url) throws ConfigurationException
+    {
+        try {
+            return new URL(url);
+        }
+        catch (IOException e) {
+            throw new ConfigurationException("Invalid configuration URL " + url, e);
+        }
+    }
+
+    private static class HttpConfigSource
+    {
+        private final URL url;
+
+        private volatile ReloadableConfiguration layer;
+        private volatile String etag;
+        private volatile long lastModified;
+
+        HttpConfigSource(final URL url)
+        {
+            this.url = url;
+        }
+
+        /**
+         * Fetch the document unless it is unchanged since the last fetch.
+         *
+         * @return The parsed document, or null if it does not exist or was not modified.
+         */
+        PropertiesConfiguration fetch() throws ConfigurationException
+        {
+            HttpURLConnection connection = null;
+            try {
+                connection = (HttpURLConnection) url.openConnection();
+                connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+                connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+                connection.setUseCaches(false);
+                if (etag != null) {
+                    connection.setRequestProperty("If-None-Match", etag);
+                }
+                if (lastModified > 0) {
+                    connection.setIfModifiedSince(lastModified);
+                }
+
+                final int status = connection.getResponseCode();
+                switch (status) {
+                    case HttpURLConnection.HTTP_OK:
+                        final PropertiesConfiguration config = new PropertiesConfiguration();
+                        try (InputStream in = connection.getInputStream()) {
+                            config.load(in);
+                        }
+                        etag = connection.getHeaderField("ETag");
+                        lastModified = connection.getLastModified();
+                        return config;
+
+                    case HttpURLConnection.HTTP_NOT_MODIFIED:
+                    case HttpURLConnection.HTTP_NOT_FOUND:
+                        return null;
+
+                    default:
+                        throw new ConfigurationException(String.format("Loading '%s' failed with status %d", url, status));
+                }
+            }
+            catch (IOException e) {
+                throw new ConfigurationException("While loading " + url, e);
+            }
+            finally {
+                if (connection != null) {
+                    connection.disconnect();
+                }
+            }
+        }
+
+        void poll()
+        {
+            try {
+                final PropertiesConfiguration config = fetch();
+                if (config != null) {
+                    LOG.info("Configuration at '{}' changed, reloading", url);
+                    layer.replace(config);
+                }
+            }
+            catch (ConfigurationException | RuntimeException e) {
+                LOG.warn("Unable to poll configuration at '{}', keeping current values", url, e);
+            }
+        }
+    }
+}
@@ -19,21 +19,42 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Properties;
 
+import javax.annotation.Nullable;
+
 import org.apache.commons.configuration.AbstractConfiguration;
 import org.apache.commons.configuration.Configuration;
 
 public final class ImmutableConfiguration extends AbstractConfiguration implements Configuration
 {
     private final Configuration delegate;
+    private final ConfigAccessTracker accessTracker;
+    private final String prefix;
 
     public ImmutableConfiguration(final Configuration delegate)
+    {
+        this(delegate, null, null);
+    }
+
+    /**
+     * @param accessTracker Records every read, may be null.
+     * @param prefix The prefix of the delegate if it is a subset, to record full keys.
+     */
+    public ImmutableConfiguration(final Configuration delegate, @Nullable final ConfigAccessTracker accessTracker, @Nullable final String prefix)
     {
         this.delegate = delegate;
+        this.accessTracker = accessTracker;
+        this.prefix = prefix;
     }
 
     @Override
     public Configuration subset(String prefix) {
-        return new ImmutableConfiguration(delegate.subset(prefix));
+        return new ImmutableConfiguration(delegate.subset(prefix), accessTracker, this.prefix == null ? prefix : this.prefix + "." + prefix);
+    }
+
+    private void record(String key) {
+        if (accessTracker != null && accessTracker.sample()) {
+            accessTracker.recordSampled(prefix == null ? key : prefix + "." + key);
+        }
     }
 
     @Override
@@ -74,6 +95,7 @@ public final class ImmutableConfiguration extends AbstractConfiguration implemen
 
     @Override
     public Object getProperty(String key) {
+        record(key);
         return delegate.getProperty(key);
     }
 
@@ -89,156 +111,187 @@ public final class ImmutableConfiguration extends AbstractConfiguration implemen
 
     @Override
     public Properties getProperties(String key) {
+        record(key);
         return delegate.getProperties(key);
     }
 
     @Override
     public boolean getBoolean(String key) {
+        record(key);
         return delegate.getBoolean(key);
     }
 
     @Override
     public boolean getBoolean(String key, boolean defaultValue) {
+        record(key);
         return delegate.getBoolean(key, defaultValue);
     }
 
     @Override
     public Boolean getBoolean(String key, Boolean defaultValue) {
+        record(key);
         return delegate.getBoolean(key, defaultValue);
     }
 
     @Override
     public byte getByte(String key) {
+        record(key);
         return delegate.getByte(key);
     }
 
     @Override
     public byte getByte(String key, byte defaultValue) {
+        record(key);
         return delegate.getByte(key, defaultValue);
     }
 
     @Override
     public Byte getByte(String key, Byte defaultValue) {
+        record(key);
         return delegate.getByte(key, defaultValue);
     }
 
     @Override
     public double getDouble(String key) {
+        record(key);
         return delegate.getDouble(key);
     }
 
     @Override
     public double getDouble(String key, double defaultValue) {
+        record(key);
         return delegate.getDouble(key, defaultValue);
     }
 
     @Override
     public Double getDouble(String key, Double defaultValue) {
+        record(key);
         return delegate.getDouble(key, defaultValue);
     }
 
     @Override
     public float getFloat(String key) {
+        record(key);
         return delegate.getFloat(key);
     }
 
     @Override
     public float getFloat(String key, float defaultValue) {
+        record(key);
         return delegate.getFloat(key, defaultValue);
     }
 
     @Override
     public Float getFloat(String key, Float defaultValue) {
+        record(key);
         return delegate.getFloat(key, defaultValue);
     }
 
     @Override
     public int getInt(String key) {
+        record(key);
         return delegate.getInt(key);
     }
 
     @Override
     public int getInt(String key, int defaultValue) {
+        record(key);
         return delegate.getInt(key, defaultValue);
     }
 
     @Override
     public Integer getInteger(String key, Integer defaultValue) {
+        record(key);
         return delegate.getInteger(key, defaultValue);
     }
 
     @Override
     public long getLong(String key) {
+        record(key);
         return delegate.getLong(key);
     }
 
     @Override
     public long getLong(String key, long defaultValue) {
+        record(key);
         return delegate.getLong(key, defaultValue);
     }
 
     @Override
     public Long getLong(String key, Long defaultValue) {
+        record(key);
         return delegate.getLong(key, defaultValue);
     }
 
     @Override
     public short getShort(String key) {
+        record(key);
         return delegate.getShort(key);
     }
 
     @Override
     public short getShort(String key, short defaultValue) {
+        record(key);
         return delegate.getShort(key, defaultValue);
     }
 
     @Override
     public Short getShort(String key, Short defaultValue) {
+        record(key);
         return delegate.getShort(key, defaultValue);
     }
 
     @Override
     public BigDecimal getBigDecimal(String key) {
+        record(key);
         return delegate.getBigDecimal(key);
     }
 
     @Override
     public BigDecimal getBigDecimal(String key, BigDecimal defaultValue) {
+        record(key);
         return delegate.getBigDecimal(key, defaultValue);
     }
 
     @Override
     public BigInteger getBigInteger(String key) {
+        record(key);
         return delegate.getBigInteger(key);
     }
 
     @Override
     public BigInteger getBigInteger(String key, BigInteger defaultValue) {
+        record(key);
         return delegate.getBigInteger(key, defaultValue);
     }
 
     @Override
     public String getString(String key) {
+        record(key);
         return delegate.getString(key);
     }
 
     @Override
     public String getString(String key, String defaultValue) {
+        record(key);
         return delegate.getString(key, defaultValue);
     }
 
     @Override
     public String[] getStringArray(String key) {
+        record(key);
         return delegate.getStringArray(key);
     }
 
     @Override
     public List<Object> getList(String key) {
+        record(key);
         return delegate.getList(key);
     }
 
     @Override
     public List<Object> getList(String key, List<?> defaultValue) {
+        record(key);
         return delegate.getList(key, defaultValue);
     }
 }
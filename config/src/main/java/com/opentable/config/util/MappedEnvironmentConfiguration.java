@@ -0,0 +1,100 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.config.util;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+import javax.annotation.Nonnull;
+
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Maps;
+
+import org.apache.commons.configuration.MapConfiguration;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A read-only configuration layer built from environment variables. The variables are read and mapped to
+ * configuration keys once, when the layer is created; lookups only consult the resulting map.
+ */
+public class MappedEnvironmentConfiguration extends MapConfiguration
+{
+    private static final Logger LOG = LoggerFactory.getLogger(MappedEnvironmentConfiguration.class);
+
+    /**
+     * Maps all environment variables that start with the given prefix and an underscore. The name is lower cased,
+     * a double underscore becomes a dash and a single underscore becomes a dot, so with prefix {@code OT},
+     * {@code OT_DB_HOST} maps to {@code ot.db.host} and {@code OT_HTTP_READ__TIMEOUT} maps to
+     * {@code ot.http.read-timeout}.
+     */
+    public static MappedEnvironmentConfiguration forPrefix(@Nonnull final String prefix)
+    {
+        return new MappedEnvironmentConfiguration(System.getenv(), prefixRule(prefix));
+    }
+
+    /**
+     * Returns the key mapping rule used by {@link #forPrefix(String)}.
+     */
+    public static Function<String, String> prefixRule(@Nonnull final String prefix)
+    {
+        final String namePrefix = prefix.toUpperCase(Locale.ENGLISH) + "_";
+        return name -> {
+            if (!name.startsWith(namePrefix)) {
+                return null;
+            }
+            final String key = name.toLowerCase(Locale.ENGLISH);
+            return StringUtils.replace(StringUtils.replace(key, "__", "-"), "_", ".");
+        };
+    }
+
+    /**
+     * @param environment The environment variables.
+     * @param keyMapper Maps a variable name to a configuration key, or to null if the variable should be ignored.
+     */
+    public MappedEnvironmentConfiguration(@Nonnull final Map<String, String> environment, @Nonnull final Function<String, String> keyMapper)
+    {
+        super(mapKeys(environment, keyMapper));
+    }
+
+    private static Map<String, Object> mapKeys(final Map<String, String> environment, final Function<String, String> keyMapper)
+    {
+        final Map<String, Object> result = Maps.newHashMap();
+        // Sort the names, so that conflicting variables resolve the same way every time.
+        for (final Map.Entry<String, String> entry : ImmutableSortedMap.copyOf(environment).entrySet()) {
+            final String key = keyMapper.apply(entry.getKey());
+            if (key != null) {
+                final Object previous = result.put(key, entry.getValue());
+                if (previous != null) {
+                    LOG.warn("Environment variable {} overrides another variable that also maps to '{}'", entry.getKey(), key);
+                }
+            }
+        }
+        return ImmutableSortedMap.copyOf(result);
+    }
+
+    @Override
+    protected void addPropertyDirect(final String key, final Object value)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    protected void clearPropertyDirect(final String key)
+    {
+        throw new UnsupportedOperationException();
+    }
+}
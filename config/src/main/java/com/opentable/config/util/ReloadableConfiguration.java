@@ -0,0 +1,83 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.config.util;
+
+import java.util.Iterator;
+
+import javax.annotation.Nonnull;
+
+import org.apache.commons.configuration.AbstractConfiguration;
+import org.apache.commons.configuration.AbstractFileConfiguration;
+import org.apache.commons.configuration.Configuration;
+
+/**
+ * A read-only configuration layer whose contents can be replaced as a whole. Every replacement fires a
+ * reload event, so a {@link org.apache.commons.configuration.CombinedConfiguration} containing this layer
+ * invalidates itself and {@link com.opentable.config.Config} publishes a new snapshot.
+ */
+public class ReloadableConfiguration extends AbstractConfiguration
+{
+    private volatile Configuration delegate;
+
+    public ReloadableConfiguration(@Nonnull final Configuration delegate)
+    {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Replace the contents of this layer.
+     */
+    public void replace(@Nonnull final Configuration newDelegate)
+    {
+        fireEvent(AbstractFileConfiguration.EVENT_RELOAD, null, null, true);
+        this.delegate = newDelegate;
+        fireEvent(AbstractFileConfiguration.EVENT_RELOAD, null, null, false);
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return delegate.isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(final String key)
+    {
+        return delegate.containsKey(key);
+    }
+
+    @Override
+    public Object getProperty(final String key)
+    {
+        return delegate.getProperty(key);
+    }
+
+    @Override
+    public Iterator<String> getKeys()
+    {
+        return delegate.getKeys();
+    }
+
+    @Override
+    protected void addPropertyDirect(final String key, final Object value)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    protected void clearPropertyDirect(final String key)
+    {
+        throw new UnsupportedOperationException();
+    }
+}
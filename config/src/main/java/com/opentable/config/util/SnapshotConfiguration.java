@@ -0,0 +1,136 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.config.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.configuration.AbstractConfiguration;
+import org.apache.commons.configuration.Configuration;
+import org.apache.commons.configuration.MapConfiguration;
+import org.apache.commons.configuration.SubsetConfiguration;
+
+/**
+ * A configuration over a map of values that have already been split into lists and interpolated.
+ * Reads return the stored values as they are, neither splitting nor interpolating them again.
+ *
+ * List values are stored as immutable lists. {@link #getList(String)} returns a mutable copy of them, as the
+ * {@link Configuration} contract requires, but neither splits nor interpolates them again. Callers that only read
+ * a list can use {@link com.opentable.config.ConfigSnapshot#getStringList(String)}, which does not copy it.
+ */
+public final class SnapshotConfiguration extends MapConfiguration
+{
+    public SnapshotConfiguration(final Map<String, Object> values)
+    {
+        super(values);
+        setDelimiterParsingDisabled(true);
+    }
+
+    @Override
+    protected String interpolate(final String base)
+    {
+        return base;
+    }
+
+    @Override
+    protected Object interpolate(final Object value)
+    {
+        return value;
+    }
+
+    @Override
+    public List<Object> getList(final String key)
+    {
+        return getList(key, new ArrayList<>());
+    }
+
+    @Override
+    public List<Object> getList(final String key, final List<?> defaultValue)
+    {
+        return getList(this, key, defaultValue);
+    }
+
+    @Override
+    public String [] getStringArray(final String key)
+    {
+        return getStringArray(this, key);
+    }
+
+    @Override
+    public Configuration subset(final String prefix)
+    {
+        return new SubsetConfiguration(this, prefix, ".") {
+            @Override
+            protected Object interpolate(final Object base)
+            {
+                return base;
+            }
+
+            @Override
+            public List<Object> getList(final String key)
+            {
+                return getList(key, new ArrayList<>());
+            }
+
+            @Override
+            public List<Object> getList(final String key, final List<?> defaultValue)
+            {
+                return SnapshotConfiguration.getList(this, key, defaultValue);
+            }
+
+            @Override
+            public String [] getStringArray(final String key)
+            {
+                return SnapshotConfiguration.getStringArray(this, key);
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> getList(final AbstractConfiguration config, final String key, final List<?> defaultValue)
+    {
+        final Object value = config.getProperty(key);
+        if (value instanceof List) {
+            return new ArrayList<>((List<?>) value);
+        }
+        else if (value == null) {
+            return (List<Object>) defaultValue;
+        }
+        final List<Object> result = new ArrayList<>(1);
+        result.add(value);
+        return result;
+    }
+
+    private static String [] getStringArray(final AbstractConfiguration config, final String key)
+    {
+        final Object value = config.getProperty(key);
+        if (value instanceof String) {
+            return new String [] { (String) value };
+        }
+        else if (value instanceof List) {
+            final List<?> list = (List<?>) value;
+            final String [] result = new String [list.size()];
+            for (int i = 0; i < result.length; i++) {
+                final Object element = list.get(i);
+                result[i] = element == null ? null : element.toString();
+            }
+            return result;
+        }
+        else if (value == null) {
+            return new String [0];
+        }
+        return new String [] { value.toString() };
+    }
+}
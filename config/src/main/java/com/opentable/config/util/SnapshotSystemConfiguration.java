@@ -0,0 +1,64 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.config.util;
+
+import java.util.Map;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+import org.apache.commons.configuration.MapConfiguration;
+
+/**
+ * A copy of the system properties, taken when this layer is created. Unlike
+ * {@link org.apache.commons.configuration.SystemConfiguration}, reads never touch the synchronized
+ * {@link System#getProperties()} table. Later changes to the system properties become visible
+ * only through {@link #refresh()}.
+ */
+public class SnapshotSystemConfiguration extends ReloadableConfiguration
+{
+    private volatile Map<String, String> properties;
+
+    public SnapshotSystemConfiguration()
+    {
+        this(copySystemProperties());
+    }
+
+    private SnapshotSystemConfiguration(final Map<String, String> properties)
+    {
+        super(new MapConfiguration(properties));
+        this.properties = properties;
+    }
+
+    /**
+     * Copy the system properties again and replace the contents of this layer if any of them changed.
+     *
+     * @return True if the system properties changed since the last copy.
+     */
+    public synchronized boolean refresh()
+    {
+        final Map<String, String> newProperties = copySystemProperties();
+        if (newProperties.equals(properties)) {
+            return false;
+        }
+        properties = newProperties;
+        replace(new MapConfiguration(newProperties));
+        return true;
+    }
+
+    private static Map<String, String> copySystemProperties()
+    {
+        return ImmutableMap.copyOf(Maps.fromProperties(System.getProperties()));
+    }
+}
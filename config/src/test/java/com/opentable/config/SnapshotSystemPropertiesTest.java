@@ -0,0 +1,72 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.config;
+
+import static org.hamcrest.CoreMatchers.is;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.opentable.config.util.PropertiesSaver;
+
+public class SnapshotSystemPropertiesTest
+{
+    private Config cfg = null;
+
+    private PropertiesSaver ps = null;
+
+    @Before
+    public void setUp()
+    {
+        ps = new PropertiesSaver(Config.SNAPSHOT_SYSTEM_PROPERTIES_PROPERTY_NAME, "string-value");
+
+        System.setProperty(Config.SNAPSHOT_SYSTEM_PROPERTIES_PROPERTY_NAME, "true");
+        System.setProperty("string-value", "OVERRIDDEN");
+        cfg = Config.getConfig("classpath:/test-config/basic", "values");
+    }
+
+    @After
+    public void tearDown()
+    {
+        cfg = null;
+
+        Assert.assertNotNull(ps);
+        ps.apply();
+        ps = null;
+    }
+
+    @Test
+    public void testCopiedAtLoad()
+    {
+        Assert.assertThat(cfg.getConfiguration().getString("string-value"), is("OVERRIDDEN"));
+
+        System.setProperty("string-value", "LATER");
+        Assert.assertThat(cfg.getConfiguration().getString("string-value"), is("OVERRIDDEN"));
+    }
+
+    @Test
+    public void testRefresh()
+    {
+        System.setProperty("string-value", "LATER");
+
+        Assert.assertThat(cfg.refresh(), is(true));
+        Assert.assertThat(cfg.getGeneration(), is(2L));
+        Assert.assertThat(cfg.getConfiguration().getString("string-value"), is("LATER"));
+
+        Assert.assertThat(cfg.refresh(), is(false));
+        Assert.assertThat(cfg.getGeneration(), is(2L));
+    }
+}
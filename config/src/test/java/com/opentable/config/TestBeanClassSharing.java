@@ -0,0 +1,72 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.config;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import com.google.common.collect.Maps;
+
+import org.apache.commons.configuration.MapConfiguration;
+import org.junit.Assert;
+import org.junit.Test;
+import org.skife.config.Default;
+
+public class TestBeanClassSharing
+{
+    private static final int PREFIXES = 1000;
+
+    public interface TenantConfig
+    {
+        @org.skife.config.Config("name")
+        @Default("none")
+        String getName();
+
+        @org.skife.config.Config("${kind}.limit")
+        @Default("10")
+        int getLimit();
+    }
+
+    @Test
+    public void testOneClassForAllPrefixes()
+    {
+        final Map<String, Object> values = Maps.newHashMap();
+        for (int i = 0; i < PREFIXES; i++) {
+            values.put("tenant" + i + ".name", "t" + i);
+        }
+        final Config config = Config.getOverriddenConfig(Config.getEmptyConfig(), new MapConfiguration(values));
+        // With a replacement, the bean is always built by config-magic, never from a generated implementation.
+        final Map<String, String> replacements = Maps.newHashMap();
+        replacements.put("kind", "soft");
+
+        // Warm up, so that the classes of the first bean are not counted.
+        final Class<?> beanClass = config.getBean("tenant0", TenantConfig.class, replacements).getClass();
+
+        final ClassLoadingMXBean classLoading = ManagementFactory.getClassLoadingMXBean();
+        final long loaded = classLoading.getTotalLoadedClassCount();
+        for (int i = 0; i < PREFIXES; i++) {
+            final TenantConfig bean = config.getBean("tenant" + i, TenantConfig.class, replacements);
+            Assert.assertThat(bean.getName(), is("t" + i));
+            Assert.assertThat(bean.getClass(), is(sameInstance((Object) beanClass)));
+        }
+
+        // Far fewer than one class per prefix, so Metaspace does not grow with the number of prefixes.
+        final long generated = classLoading.getTotalLoadedClassCount() - loaded;
+        Assert.assertThat("loaded " + generated + " classes", generated < PREFIXES / 10, is(true));
+    }
+}
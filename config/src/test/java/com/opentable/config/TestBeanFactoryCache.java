@@ -0,0 +1,89 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.config;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+
+import com.google.common.cache.CacheStats;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.skife.config.Default;
+
+import com.opentable.config.util.PropertiesSaver;
+
+public class TestBeanFactoryCache
+{
+    public interface TenantConfig
+    {
+        @org.skife.config.Config("name")
+        @Default("none")
+        String getName();
+    }
+
+    private PropertiesSaver ps = null;
+
+    @Before
+    public void setUp()
+    {
+        ps = new PropertiesSaver(Config.BEAN_FACTORY_CACHE_SIZE_PROPERTY_NAME);
+        System.setProperty(Config.BEAN_FACTORY_CACHE_SIZE_PROPERTY_NAME, "2");
+    }
+
+    @After
+    public void tearDown()
+    {
+        ps.apply();
+    }
+
+    @Test
+    public void testEvictsPrefixes()
+    {
+        final Config config = Config.getFixedConfig("a.name", "A", "b.name", "B", "c.name", "C");
+        Assert.assertThat(config.getBean("a", TenantConfig.class).getName(), is("A"));
+        Assert.assertThat(config.getBean("a", TenantConfig.class).getName(), is("A"));
+        Assert.assertThat(config.getBean("b", TenantConfig.class).getName(), is("B"));
+        Assert.assertThat(config.getBean("c", TenantConfig.class).getName(), is("C"));
+
+        // An evicted prefix is built again with the same values.
+        for (final String prefix : new String[] { "a", "b", "c" }) {
+            Assert.assertThat(config.getBean(prefix, TenantConfig.class).getName(), is(prefix.toUpperCase()));
+        }
+
+        final CacheStats stats = config.getBeanFactoryStats();
+        Assert.assertThat(stats.hitCount() >= 1, is(true));
+        Assert.assertThat(stats.evictionCount() >= 1, is(true));
+        Assert.assertThat(stats.requestCount(), is(7L));
+    }
+
+    @Test
+    public void testEvictsSharedBeans()
+    {
+        final ConfigSnapshot snapshot = Config.getFixedConfig("a.name", "A", "b.name", "B", "c.name", "C").getSnapshot();
+        final TenantConfig a = snapshot.withOverrides("other", "x").getBean("a", TenantConfig.class);
+        Assert.assertThat(snapshot.withOverrides("other", "y").getBean("a", TenantConfig.class), is(sameInstance(a)));
+
+        snapshot.withOverrides("other", "x").getBean("b", TenantConfig.class);
+        snapshot.withOverrides("other", "x").getBean("c", TenantConfig.class);
+
+        // The shared bean of an evicted prefix is dropped with its bean factory.
+        final TenantConfig rebuilt = snapshot.withOverrides("other", "x").getBean("a", TenantConfig.class);
+        Assert.assertThat(rebuilt, is(not(sameInstance(a))));
+        Assert.assertThat(rebuilt.getName(), is("A"));
+    }
+}
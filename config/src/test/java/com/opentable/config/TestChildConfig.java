@@ -0,0 +1,79 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.config;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.opentable.config.test.DatabaseBean;
+
+public class TestChildConfig
+{
+    private Config config;
+
+    @Before
+    public void setUp()
+    {
+        config = Config.getFixedConfig(
+            "db.uri", "jdbc:postgresql://localhost/app",
+            "db.user", "app",
+            "db.password", "secret",
+            "tenant", "default");
+    }
+
+    @Test
+    public void testOverridesWin()
+    {
+        final ChildConfig child = config.withOverrides("tenant", "acme");
+
+        Assert.assertThat(child.getString("tenant"), is("acme"));
+        Assert.assertThat(child.getString("db.user"), is("app"));
+        Assert.assertThat(child.getString("missing"), is(nullValue()));
+        Assert.assertThat(config.getConfiguration().getString("tenant"), is("default"));
+    }
+
+    @Test
+    public void testBeanWithOverride()
+    {
+        final DatabaseBean bean = config.withOverrides("db.user", "acme").getBean("db", DatabaseBean.class);
+
+        Assert.assertThat(bean.getDbUser(), is("acme"));
+        Assert.assertThat(bean.getDbUri(), is("jdbc:postgresql://localhost/app"));
+    }
+
+    @Test
+    public void testUnaffectedBeanIsShared()
+    {
+        final DatabaseBean first = config.withOverrides("tenant", "acme").getBean("db", DatabaseBean.class);
+        final DatabaseBean second = config.withOverrides("tenant", "other").getBean("db", DatabaseBean.class);
+
+        Assert.assertThat(first, is(sameInstance(second)));
+        Assert.assertThat(first.getDbUser(), is("app"));
+
+        final DatabaseBean overridden = config.withOverrides("db.password", "other").getBean("db", DatabaseBean.class);
+        Assert.assertThat(overridden, is(not(sameInstance(first))));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOddArguments()
+    {
+        config.withOverrides("tenant");
+    }
+}
@@ -38,4 +38,15 @@ public class TestConfig
 
         Assert.assertEquals("brains", propsConfig.getConfiguration().getString("zombie.food"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testDumpTo() throws Exception
+    {
+        final Config config = Config.getFixedConfig("b", "2", "a", "1");
+        final StringBuilder sb = new StringBuilder();
+        config.dumpTo(sb);
+
+        Assert.assertEquals("a=1\nb=2\n", sb.toString());
+        Assert.assertEquals("[a->1, b->2]", config.toString());
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.config;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+
+import com.google.common.collect.ImmutableMap;
+
+import org.apache.commons.configuration.MapConfiguration;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.opentable.config.util.ConfigAccessTracker;
+import com.opentable.config.util.PropertiesSaver;
+
+public class TestConfigAccessTracking
+{
+    private PropertiesSaver ps = null;
+    private Config config = null;
+
+    @Before
+    public void setUp()
+    {
+        ps = new PropertiesSaver(Config.ACCESS_SAMPLE_RATE_PROPERTY_NAME);
+        System.setProperty(Config.ACCESS_SAMPLE_RATE_PROPERTY_NAME, "1");
+        config = Config.getFixedConfig("db.host", "localhost", "db.port", "5432", "timeout", "5s", "unused", "x");
+    }
+
+    @After
+    public void tearDown()
+    {
+        ps.apply();
+    }
+
+    @Test
+    public void testDisabledByDefault()
+    {
+        System.clearProperty(Config.ACCESS_SAMPLE_RATE_PROPERTY_NAME);
+        Assert.assertThat(Config.getFixedConfig("a", "b").getAccessTracker(), is(nullValue()));
+    }
+
+    @Test
+    public void testCounts() throws Exception
+    {
+        for (int i = 0; i < 3; i++) {
+            config.getConfiguration().getString("db.host");
+        }
+        config.getConfiguration("db").getInt("port");
+        config.getDurationNanos("timeout", 0);
+        config.toString();
+
+        final ConfigAccessTracker tracker = config.getAccessTracker();
+        Assert.assertThat(tracker.getCount("db.host"), is(3L));
+        Assert.assertThat(tracker.getCount("db.port"), is(1L));
+        Assert.assertThat(tracker.getHotKeys(1).get(0).getKey(), is("db.host"));
+        Assert.assertThat(tracker.getNeverReadKeys(config.getSnapshot().getKeys()).toString(), is("[unused]"));
+
+        final StringBuilder sb = new StringBuilder();
+        config.dumpAccessCounts(sb);
+        Assert.assertThat(sb.toString().split("\n")[0], is("db.host 3"));
+        Assert.assertThat(sb.toString().endsWith("unused 0\n"), is(true));
+
+        final ConfigAccess view = new ConfigAccess(config, tracker);
+        Assert.assertThat(view.getNeverReadKeys(), is(new String [] { "unused" }));
+        view.reset();
+        Assert.assertThat(tracker.getCount("db.host"), is(0L));
+    }
+
+    @Test
+    public void testOverlaySharesTracker()
+    {
+        final Config child = Config.getOverriddenConfig(config, new MapConfiguration(ImmutableMap.of("db.host", "remote")));
+        child.getConfiguration().getString("db.host");
+        child.getConfiguration().getString("unused");
+
+        Assert.assertThat(config.getAccessTracker().getCount("db.host"), is(1L));
+        Assert.assertThat(config.getAccessTracker().getCount("unused"), is(1L));
+    }
+}
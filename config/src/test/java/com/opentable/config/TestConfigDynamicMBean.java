@@ -0,0 +1,150 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.config;
+
+import static org.hamcrest.CoreMatchers.is;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.management.AttributeChangeNotification;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import org.apache.commons.configuration.PropertiesConfiguration;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestConfigDynamicMBean
+{
+    private final ObjectName name;
+
+    private MBeanServer server;
+    private PropertiesConfiguration pc;
+    private Config config;
+
+    public TestConfigDynamicMBean() throws Exception
+    {
+        name = new ObjectName("com.opentable.config:config=ROOT");
+    }
+
+    @Before
+    public void setUp() throws Exception
+    {
+        server = MBeanServerFactory.createMBeanServer();
+        pc = new PropertiesConfiguration();
+        pc.setProperty("db.host", "old-host");
+        pc.setProperty("db.port", "5432");
+        config = Config.getFixedConfig(pc);
+
+        server.registerMBean(new ConfigDynamicMBean("com.opentable.config.Config", config), name);
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        server.unregisterMBean(name);
+        MBeanServerFactory.releaseMBeanServer(server);
+    }
+
+    @Test
+    public void testValuesFollowSnapshot() throws Exception
+    {
+        Assert.assertThat(server.getAttribute(name, "db.host"), is((Object) "old-host"));
+
+        pc.setProperty("db.host", "new-host");
+
+        Assert.assertThat(server.getAttribute(name, "db.host"), is((Object) "new-host"));
+        Assert.assertThat(server.getAttribute(name, "db.port"), is((Object) "5432"));
+    }
+
+    @Test
+    public void testChangeNotifications() throws Exception
+    {
+        final List<AttributeChangeNotification> notifications = new CopyOnWriteArrayList<>();
+        server.addNotificationListener(name, (n, handback) -> notifications.add((AttributeChangeNotification) n), null, null);
+
+        pc.setProperty("db.host", "new-host");
+
+        Assert.assertThat(notifications.size(), is(1));
+        final AttributeChangeNotification notification = notifications.get(0);
+        Assert.assertThat(notification.getAttributeName(), is("db.host"));
+        Assert.assertThat(notification.getOldValue(), is((Object) "old-host"));
+        Assert.assertThat(notification.getNewValue(), is((Object) "new-host"));
+    }
+
+    @Test
+    public void testAttributeInfoFollowsKeys() throws Exception
+    {
+        Assert.assertThat(server.getMBeanInfo(name).getAttributes().length, is(2));
+
+        pc.setProperty("db.user", "app");
+
+        final MBeanAttributeInfo[] attributes = server.getMBeanInfo(name).getAttributes();
+        Assert.assertThat(attributes.length, is(3));
+        Assert.assertThat(attributes[2].getName(), is("db.user"));
+        Assert.assertThat(attributes[2].getType(), is(String.class.getName()));
+        Assert.assertThat(server.getAttribute(name, "db.user"), is((Object) "app"));
+    }
+
+    @Test
+    public void testPrefixOf()
+    {
+        Assert.assertThat(ConfigDynamicMBean.prefixOf("ot.db.pool.size", 2), is("ot.db"));
+        Assert.assertThat(ConfigDynamicMBean.prefixOf("ot.db.size", 2), is("ot.db"));
+        Assert.assertThat(ConfigDynamicMBean.prefixOf("ot.size", 2), is("ot"));
+        Assert.assertThat(ConfigDynamicMBean.prefixOf("size", 2), is(""));
+    }
+
+    @Test
+    public void testPrefixBean() throws Exception
+    {
+        pc.setProperty("db.pool.size", "10");
+        pc.setProperty("web.port", "8080");
+
+        final ObjectName prefixName = new ObjectName("com.opentable.config:config=PREFIX,prefix=db");
+        final ConfigDynamicMBean bean = new ConfigDynamicMBean("com.opentable.config.Config", config, "db", 1);
+        server.registerMBean(bean, prefixName);
+        try {
+            final MBeanAttributeInfo[] attributes = server.getMBeanInfo(prefixName).getAttributes();
+            Assert.assertThat(attributes.length, is(3));
+            Assert.assertThat(attributes[0].getName(), is("host"));
+            Assert.assertThat(attributes[1].getName(), is("pool.size"));
+            Assert.assertThat(server.getAttribute(prefixName, "port"), is((Object) "5432"));
+
+            final List<AttributeChangeNotification> notifications = new CopyOnWriteArrayList<>();
+            server.addNotificationListener(prefixName, (n, handback) -> notifications.add((AttributeChangeNotification) n), null, null);
+
+            final ConfigSnapshot before = config.getSnapshot();
+            pc.setProperty("web.port", "8081");
+            pc.setProperty("db.host", "new-host");
+            Assert.assertThat(notifications.size(), is(0));
+
+            // Prefix beans are updated by their exporter.
+            final ConfigSnapshot after = config.getSnapshot();
+            bean.update(before, after, after.getChangedKeys(before));
+
+            Assert.assertThat(notifications.size(), is(1));
+            Assert.assertThat(notifications.get(0).getAttributeName(), is("host"));
+            Assert.assertThat(server.getAttribute(prefixName, "host"), is((Object) "new-host"));
+        }
+        finally {
+            server.unregisterMBean(prefixName);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.config;
+
+import static org.hamcrest.CoreMatchers.is;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.MBeanAttributeInfo;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestConfigMagicDynamicMBean
+{
+    public static class CountingBean
+    {
+        private final AtomicInteger reads = new AtomicInteger();
+        private volatile String host = "first-host";
+
+        public String getHost()
+        {
+            reads.incrementAndGet();
+            return host;
+        }
+
+        public int getReads()
+        {
+            return reads.get();
+        }
+    }
+
+    public static class BrokenBean
+    {
+        public String getHost()
+        {
+            return "host";
+        }
+
+        public String getPort()
+        {
+            throw new IllegalArgumentException("not a port");
+        }
+    }
+
+    @Test
+    public void testGettersEvaluatedOnDemand() throws Exception
+    {
+        final CountingBean bean = new CountingBean();
+        final ConfigMagicDynamicMBean mbean = new ConfigMagicDynamicMBean(CountingBean.class.getName(), bean);
+
+        Assert.assertThat(bean.reads.get(), is(0));
+        Assert.assertThat(mbean.getMBeanInfo().getAttributes().length, is(2));
+        Assert.assertThat(bean.reads.get(), is(0));
+
+        Assert.assertThat(mbean.getAttribute("host"), is((Object) "first-host"));
+        bean.host = "second-host";
+        Assert.assertThat(mbean.getAttribute("host"), is((Object) "second-host"));
+        Assert.assertThat(bean.reads.get(), is(2));
+    }
+
+    @Test
+    public void testAttributeTypes()
+    {
+        final ConfigMagicDynamicMBean mbean = new ConfigMagicDynamicMBean(CountingBean.class.getName(), new CountingBean());
+        for (final MBeanAttributeInfo info : mbean.getMBeanInfo().getAttributes()) {
+            Assert.assertThat(info.getType(), is("java.lang.String"));
+        }
+    }
+
+    @Test
+    public void testUnreadableAttributeIsSkipped()
+    {
+        final ConfigMagicDynamicMBean mbean = new ConfigMagicDynamicMBean(BrokenBean.class.getName(), new BrokenBean());
+        final AttributeList attributes = mbean.getAttributes(new String[] { "host", "port" });
+
+        Assert.assertThat(attributes.size(), is(1));
+        Assert.assertThat(attributes.asList().get(0).getValue(), is((Object) "host"));
+    }
+
+    @Test(expected = AttributeNotFoundException.class)
+    public void testUnknownAttribute() throws Exception
+    {
+        new ConfigMagicDynamicMBean(CountingBean.class.getName(), new CountingBean()).getAttribute("port");
+    }
+}
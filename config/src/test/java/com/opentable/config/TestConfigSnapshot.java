@@ -0,0 +1,105 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.config;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import org.apache.commons.configuration.PropertiesConfiguration;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestConfigSnapshot
+{
+    @Test
+    public void testGetAll()
+    {
+        final Config config = Config.getFixedConfig("db.host", "localhost", "db.port", "5432", "db.pool", "10");
+
+        final Map<String, String> values = config.getAll("db.host", "db.port", "db.missing");
+        Assert.assertThat(values, is((Map<String, String>) ImmutableMap.of("db.host", "localhost", "db.port", "5432")));
+    }
+
+    @Test
+    public void testPinnedSnapshot()
+    {
+        final PropertiesConfiguration pc = new PropertiesConfiguration();
+        pc.setProperty("db.host", "old-host");
+        pc.setProperty("db.port", "5432");
+
+        final Config config = Config.getFixedConfig(pc);
+        final ConfigSnapshot pinned = config.getSnapshot();
+        Assert.assertThat(pinned.getGeneration(), is(1L));
+
+        pc.setProperty("db.host", "new-host");
+
+        Assert.assertThat(config.getGeneration(), is(2L));
+        Assert.assertThat(config.getConfiguration().getString("db.host"), is("new-host"));
+        Assert.assertThat(pinned.getString("db.host"), is("old-host"));
+        Assert.assertThat(pinned.getAll("db.host", "db.port"), is((Map<String, String>) ImmutableMap.of("db.host", "old-host", "db.port", "5432")));
+    }
+
+    @Test
+    public void testRefreshWithoutChange()
+    {
+        final Config config = Config.getFixedConfig("a", "1");
+        final ConfigSnapshot snapshot = config.getSnapshot();
+
+        Assert.assertThat(config.refresh(), is(false));
+        Assert.assertThat(config.getSnapshot(), is(sameInstance(snapshot)));
+        Assert.assertThat(config.getGeneration(), is(1L));
+    }
+
+    @Test
+    public void testListValuesAreSplitOnce()
+    {
+        final Config config = Config.getFixedConfig("hosts", "a,b,c", "single", "x");
+
+        final List<String> hosts = config.getStringList("hosts");
+        Assert.assertThat(hosts, is((List<String>) ImmutableList.of("a", "b", "c")));
+        Assert.assertThat(config.getStringList("hosts"), is(sameInstance(hosts)));
+        Assert.assertThat(config.getConfiguration().getList("hosts"), is((Object) hosts));
+        Assert.assertThat(config.getConfiguration().getStringArray("hosts"), is(new String [] { "a", "b", "c" }));
+        Assert.assertThat(config.getConfiguration().getStringArray("missing"), is(new String [0]));
+        Assert.assertThat(config.getStringList("single"), is((List<String>) ImmutableList.of("x")));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testStringListIsImmutable()
+    {
+        final Config config = Config.getFixedConfig("hosts", "a,b,c");
+        config.getStringList("hosts").add("d");
+    }
+
+    @Test
+    public void testGetListReturnsCopy()
+    {
+        final Config config = Config.getFixedConfig("hosts", "a,b,c", "single", "x");
+
+        final List<Object> hosts = config.getConfiguration().getList("hosts");
+        hosts.add("d");
+        config.getConfiguration().getList("single").add("y");
+        config.getConfiguration().getList("missing").add("z");
+
+        Assert.assertThat(config.getStringList("hosts"), is((List<String>) ImmutableList.of("a", "b", "c")));
+        Assert.assertThat(config.getConfiguration().getList("single"), is((List<Object>) ImmutableList.<Object>of("x")));
+        Assert.assertThat(config.getConfiguration().getList("missing").isEmpty(), is(true));
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.config;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+
+import java.net.URL;
+
+import com.google.common.collect.ImmutableMap;
+
+import org.apache.commons.configuration.MapConfiguration;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.opentable.config.util.PropertiesSaver;
+
+public class TestConfigSources
+{
+    @Test
+    public void testFileLayers()
+    {
+        final PropertiesSaver ps = new PropertiesSaver("prop1");
+        try {
+            System.setProperty("prop1", "system");
+
+            final URL path = TestConfigSources.class.getResource("/newstyle-config");
+            final Config config = Config.getConfig(path.toString(), "common,common/test,app,app/test");
+
+            Assert.assertThat(config.getSource("prop1"), is("systemProperties"));
+            Assert.assertThat(config.getSource("prop2").endsWith("/newstyle-config/common/test"), is(true));
+            Assert.assertThat(config.getSource("prop3").endsWith("/newstyle-config/app"), is(true));
+            Assert.assertThat(config.getSource("prop4").endsWith("/newstyle-config/app/test"), is(true));
+            Assert.assertThat(config.getSource("missing"), is(nullValue()));
+
+            final ConfigSources view = new ConfigSources(config);
+            Assert.assertThat(view.source("prop4"), is(config.getSource("prop4")));
+            Assert.assertThat(view.keysFrom(config.getSource("prop3")), is(new String [] { "prop3" }));
+        }
+        finally {
+            ps.apply();
+        }
+    }
+
+    @Test
+    public void testUnnamedLayers()
+    {
+        final Config config = Config.getFixedConfig(
+            new MapConfiguration(ImmutableMap.of("a", "1")),
+            new MapConfiguration(ImmutableMap.of("a", "2", "b", "2")));
+
+        Assert.assertThat(config.getSource("a"), is("layer 0"));
+        Assert.assertThat(config.getSource("b"), is("layer 1"));
+    }
+
+    @Test
+    public void testOverrides()
+    {
+        final Config config = Config.getFixedConfig("host", "db", "url", "jdbc:${host}", "port", "5432");
+        final Config child = Config.getOverriddenConfig(config, new MapConfiguration(ImmutableMap.of("host", "other")));
+
+        Assert.assertThat(child.getSource("host"), is("override"));
+        Assert.assertThat(child.getSource("url"), is("layer 0"));
+        Assert.assertThat(child.getSource("port"), is("layer 0"));
+        Assert.assertThat(config.getSource("host"), is("layer 0"));
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.config;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+
+import com.google.common.collect.ImmutableMap;
+
+import org.apache.commons.configuration.MapConfiguration;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.opentable.config.util.MappedEnvironmentConfiguration;
+
+public class TestEnvironmentConfiguration
+{
+    private final MappedEnvironmentConfiguration env = new MappedEnvironmentConfiguration(
+        ImmutableMap.of(
+            "OT_DB_HOST", "env-host",
+            "OT_HTTP_READ__TIMEOUT", "5s",
+            "PATH", "/usr/bin"),
+        MappedEnvironmentConfiguration.prefixRule("OT"));
+
+    @Test
+    public void testMapping()
+    {
+        Assert.assertThat(env.getString("ot.db.host"), is("env-host"));
+        Assert.assertThat(env.getString("ot.http.read-timeout"), is("5s"));
+        Assert.assertThat(env.getString("path"), is(nullValue()));
+        Assert.assertThat(env.containsKey("PATH"), is(false));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testImmutable()
+    {
+        env.setProperty("ot.db.host", "other");
+    }
+
+    @Test
+    public void testOverridesFiles()
+    {
+        final Config config = Config.getFixedConfig(env, new MapConfiguration(ImmutableMap.of(
+            "ot.db.host", "file-host",
+            "ot.db.port", "5432")));
+
+        Assert.assertThat(config.getConfiguration().getString("ot.db.host"), is("env-host"));
+        Assert.assertThat(config.getConfiguration().getString("ot.db.port"), is("5432"));
+    }
+}
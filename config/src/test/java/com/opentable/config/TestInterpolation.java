@@ -0,0 +1,77 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.config;
+
+import static org.hamcrest.CoreMatchers.is;
+
+import java.util.Arrays;
+
+import org.apache.commons.configuration.PropertiesConfiguration;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestInterpolation
+{
+    @Test
+    public void testChainedReferences()
+    {
+        final Config config = Config.getFixedConfig(
+            "ot.domain", "example.com",
+            "ot.db.host", "db.${ot.domain}",
+            "ot.db.url", "jdbc:postgresql://${ot.db.host}:${ot.db.port}/app",
+            "ot.db.port", "5432");
+
+        Assert.assertThat(config.getConfiguration().getString("ot.db.url"), is("jdbc:postgresql://db.example.com:5432/app"));
+        Assert.assertThat(config.getConfiguration("ot.db").getString("url"), is("jdbc:postgresql://db.example.com:5432/app"));
+    }
+
+    @Test
+    public void testUnresolvableAndEscaped()
+    {
+        final Config config = Config.getFixedConfig(
+            "missing", "a-${does.not.exist}",
+            "escaped", "$${ot.domain}",
+            "ot.domain", "example.com");
+
+        Assert.assertThat(config.getConfiguration().getString("missing"), is("a-${does.not.exist}"));
+        Assert.assertThat(config.getConfiguration().getString("escaped"), is("${ot.domain}"));
+    }
+
+    @Test
+    public void testListValues()
+    {
+        final PropertiesConfiguration pc = new PropertiesConfiguration();
+        pc.setProperty("ot.domain", "example.com");
+        pc.setProperty("ot.hosts", Arrays.asList("a.${ot.domain}", "b.${ot.domain}"));
+
+        final Config config = Config.getFixedConfig(pc);
+        Assert.assertThat(config.getConfiguration().getStringArray("ot.hosts"), is(new String [] { "a.example.com", "b.example.com" }));
+    }
+
+    @Test
+    public void testSystemLookup()
+    {
+        final Config config = Config.getFixedConfig("home", "${sys:user.home}");
+        Assert.assertThat(config.getConfiguration().getString("home"), is(System.getProperty("user.home")));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testCycleFailsAtLoad()
+    {
+        Config.getFixedConfig(
+            "a", "${b}",
+            "b", "${c}",
+            "c", "x-${a}");
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.config;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+
+import java.lang.ref.WeakReference;
+
+import org.apache.commons.configuration.PropertiesConfiguration;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestOverlayConfig
+{
+    private PropertiesConfiguration base;
+    private Config parent;
+
+    @Before
+    public void setUp()
+    {
+        base = new PropertiesConfiguration();
+        base.setProperty("db.host", "base-host");
+        base.setProperty("db.port", "5432");
+        base.setProperty("db.url", "jdbc:postgresql://${db.host}:${db.port}/app");
+        base.setProperty("db.label", "[${db.url}]");
+        base.setProperty("unrelated", "value");
+        parent = Config.getFixedConfig(base);
+    }
+
+    private static PropertiesConfiguration override(final String key, final String value)
+    {
+        final PropertiesConfiguration pc = new PropertiesConfiguration();
+        pc.setProperty(key, value);
+        return pc;
+    }
+
+    @Test
+    public void testOverlayStoresOnlyAffectedKeys()
+    {
+        final Config child = Config.getOverriddenConfig(parent, override("unrelated", "other"));
+
+        Assert.assertThat(child.getSnapshot().getParent(), is(sameInstance(parent.getSnapshot())));
+        Assert.assertThat(child.getConfiguration().getString("unrelated"), is("other"));
+        Assert.assertThat(child.getConfiguration().getString("db.url"), is("jdbc:postgresql://base-host:5432/app"));
+        Assert.assertThat(child.getSnapshot().size(), is(parent.getSnapshot().size()));
+        Assert.assertThat(parent.getConfiguration().getString("unrelated"), is("value"));
+    }
+
+    @Test
+    public void testDependentKeysAreResolvedAgain()
+    {
+        final Config child = Config.getOverriddenConfig(parent, override("db.host", "child-host"));
+
+        Assert.assertThat(child.getConfiguration().getString("db.url"), is("jdbc:postgresql://child-host:5432/app"));
+        Assert.assertThat(child.getConfiguration("db").getString("label"), is("[jdbc:postgresql://child-host:5432/app]"));
+        Assert.assertThat(parent.getConfiguration().getString("db.url"), is("jdbc:postgresql://base-host:5432/app"));
+    }
+
+    @Test
+    public void testOverrideResolvesMissingReference()
+    {
+        base.setProperty("service.url", "http://${service.host}/");
+        parent = Config.getFixedConfig(base);
+        Assert.assertThat(parent.getConfiguration().getString("service.url"), is("http://${service.host}/"));
+
+        final Config child = Config.getOverriddenConfig(parent, override("service.host", "child-host"));
+        Assert.assertThat(child.getConfiguration().getString("service.url"), is("http://child-host/"));
+    }
+
+    @Test
+    public void testNestedOverlays()
+    {
+        final Config child = Config.getOverriddenConfig(parent, override("db.port", "6543"));
+        final Config grandChild = Config.getOverriddenConfig(child, override("db.host", "grandchild-host"));
+
+        Assert.assertThat(grandChild.getConfiguration().getString("db.label"), is("[jdbc:postgresql://grandchild-host:6543/app]"));
+        Assert.assertThat(grandChild.getSnapshot().getKeys(), is(parent.getSnapshot().getKeys()));
+    }
+
+    @Test
+    public void testOverlayFollowsParent()
+    {
+        final Config child = Config.getOverriddenConfig(parent, override("db.port", "6543"));
+        Assert.assertThat(child.getGeneration(), is(1L));
+
+        base.setProperty("db.host", "new-host");
+        base.setProperty("added", "new");
+
+        Assert.assertThat(child.getConfiguration().getString("db.url"), is("jdbc:postgresql://new-host:6543/app"));
+        Assert.assertThat(child.getConfiguration().getString("added"), is("new"));
+        Assert.assertThat(child.getSnapshot().getParent(), is(sameInstance(parent.getSnapshot())));
+    }
+
+    @Test
+    public void testOverrideChangeIsPickedUp()
+    {
+        final PropertiesConfiguration pc = override("db.port", "6543");
+        final Config child = Config.getOverriddenConfig(parent, pc);
+
+        pc.setProperty("db.port", "7654");
+
+        Assert.assertThat(child.getGeneration(), is(2L));
+        Assert.assertThat(child.getConfiguration().getString("db.url"), is("jdbc:postgresql://base-host:7654/app"));
+        Assert.assertThat(parent.getGeneration(), is(1L));
+    }
+
+    @Test
+    public void testChangedKeysBetweenSiblings()
+    {
+        final Config first = Config.getOverriddenConfig(parent, override("db.host", "first-host"));
+        final Config second = Config.getOverriddenConfig(parent, override("unrelated", "other"));
+
+        Assert.assertThat(first.getSnapshot().getChangedKeys(second.getSnapshot()).toString(),
+            is("[db.host, db.label, db.url, unrelated]"));
+        Assert.assertThat(second.getConfiguration().getString("missing"), is(nullValue()));
+    }
+
+    @Test
+    public void testSharedOverrideDoesNotKeepConfigs() throws Exception
+    {
+        final PropertiesConfiguration shared = override("db.port", "6543");
+        final int listeners = shared.getConfigurationListeners().size();
+        final WeakReference<Config> first = new WeakReference<>(Config.getOverriddenConfig(parent, shared));
+        for (int i = 0; i < 100 && first.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        Assert.assertThat(first.get(), is(nullValue()));
+
+        final Config second = Config.getOverriddenConfig(parent, shared);
+        Assert.assertThat(shared.getConfigurationListeners().size(), is(listeners + 1));
+
+        shared.setProperty("db.port", "7654");
+        Assert.assertThat(second.getConfiguration().getString("db.port"), is("7654"));
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.config;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+
+import java.time.Duration;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.skife.config.Default;
+
+public class TestQuantityValues
+{
+    public interface TimeoutConfig
+    {
+        @org.skife.config.Config("timeout")
+        @Default("5s")
+        Duration getTimeout();
+
+        @org.skife.config.Config("buffer")
+        @Default("64KB")
+        DataSize getBuffer();
+    }
+
+    @Test
+    public void testDurations()
+    {
+        final Config config = Config.getFixedConfig("connect", "250ms", "idle", "1.5 min");
+
+        Assert.assertThat(config.getDurationNanos("connect", 0), is(250_000_000L));
+        Assert.assertThat(config.getDuration("idle"), is(Duration.ofSeconds(90)));
+        Assert.assertThat(config.getDurationNanos("missing", 42), is(42L));
+        Assert.assertThat(config.getDuration("missing"), is(nullValue()));
+    }
+
+    @Test
+    public void testDataSizes()
+    {
+        final Config config = Config.getFixedConfig("heap", "512MB", "page", "4 KiB");
+
+        Assert.assertThat(config.getBytes("heap", 0), is(512L * 1024 * 1024));
+        Assert.assertThat(config.getDataSize("page"), is(DataSize.ofBytes(4096)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownUnit()
+    {
+        Config.getFixedConfig("name", "30 secs").getDurationNanos("name", 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSizeIsNotDuration()
+    {
+        Config.getFixedConfig("heap", "512MB").getDuration("heap");
+    }
+
+    @Test
+    public void testOverflowFailsOnlyOnRead()
+    {
+        final Config config = Config.getFixedConfig("forever", "99999999999999d", "connect", "250ms");
+        Assert.assertThat(config.getDurationNanos("connect", 0), is(250_000_000L));
+        Assert.assertThat(config.getConfiguration().getString("forever"), is("99999999999999d"));
+        try {
+            config.getDurationNanos("forever", 0);
+            Assert.fail();
+        }
+        catch (IllegalArgumentException e) {
+            Assert.assertThat(e.getMessage().contains("'forever'"), is(true));
+        }
+    }
+
+    @Test
+    public void testUnitsAreNotCaseSensitive()
+    {
+        final Config config = Config.getFixedConfig("heap", "512mb", "direct", "512M", "page", "4kib", "timeout", "5S", "none", "0");
+
+        Assert.assertThat(config.getBytes("heap", 0), is(512L * 1024 * 1024));
+        Assert.assertThat(config.getBytes("direct", 0), is(512L * 1024 * 1024));
+        Assert.assertThat(config.getBytes("page", 0), is(4096L));
+        Assert.assertThat(config.getDuration("timeout"), is(Duration.ofSeconds(5)));
+        Assert.assertThat(config.getDuration("none"), is(Duration.ZERO));
+        Assert.assertThat(config.getBytes("none", 42), is(0L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNumberWithoutUnit()
+    {
+        Config.getFixedConfig("timeout", "30").getDuration("timeout");
+    }
+
+    @Test
+    public void testBeanBinding()
+    {
+        final TimeoutConfig defaults = Config.getEmptyConfig().getBean(TimeoutConfig.class);
+        Assert.assertThat(defaults.getTimeout(), is(Duration.ofSeconds(5)));
+        Assert.assertThat(defaults.getBuffer(), is(DataSize.ofBytes(64 * 1024)));
+
+        final TimeoutConfig configured = Config.getFixedConfig("timeout", "100ms", "buffer", "1GB").getBean(TimeoutConfig.class);
+        Assert.assertThat(configured.getTimeout(), is(Duration.ofMillis(100)));
+        Assert.assertThat(configured.getBuffer().toMegabytes(), is(1024L));
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.config.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.apache.commons.configuration.AbstractConfiguration;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.opentable.config.Config;
+
+public class TestHttpConfigStrategy
+{
+    private HttpServer server;
+    private HttpConfigStrategy strategy;
+
+    private volatile String body = "db.host=first-host\n";
+    private volatile int version = 1;
+
+    private final AtomicInteger okResponses = new AtomicInteger();
+    private final AtomicInteger notModifiedResponses = new AtomicInteger();
+
+    @Before
+    public void setUp() throws IOException
+    {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/config/app/config.properties", this::serveConfig);
+        server.start();
+
+        final URI location = URI.create("http://localhost:" + server.getAddress().getPort() + "/config");
+        strategy = new HttpConfigStrategy(location, 0, TimeUnit.SECONDS);
+    }
+
+    @After
+    public void tearDown()
+    {
+        strategy.close();
+        server.stop(0);
+    }
+
+    private void serveConfig(final HttpExchange exchange) throws IOException
+    {
+        final String etag = "\"v" + version + "\"";
+        exchange.getResponseHeaders().set("ETag", etag);
+
+        if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            notModifiedResponses.incrementAndGet();
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+
+        final byte [] bytes = body.getBytes(StandardCharsets.ISO_8859_1);
+        okResponses.incrementAndGet();
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Test
+    public void testLoad() throws Exception
+    {
+        final AbstractConfiguration layer = strategy.load("app", "app");
+
+        Assert.assertThat(layer, is(notNullValue()));
+        Assert.assertThat(layer.getString("db.host"), is("first-host"));
+        Assert.assertThat(okResponses.get(), is(1));
+    }
+
+    @Test
+    public void testMissing() throws Exception
+    {
+        Assert.assertThat(strategy.load("missing", "missing"), is(nullValue()));
+    }
+
+    @Test
+    public void testUnchangedCostsOnlyNotModified() throws Exception
+    {
+        final AbstractConfiguration layer = strategy.load("app", "app");
+        final Config config = Config.getFixedConfig(layer);
+
+        strategy.pollNow();
+        strategy.pollNow();
+
+        Assert.assertThat(okResponses.get(), is(1));
+        Assert.assertThat(notModifiedResponses.get(), is(2));
+        Assert.assertThat(config.getGeneration(), is(1L));
+    }
+
+    @Test
+    public void testChangeIsPickedUp() throws Exception
+    {
+        final AbstractConfiguration layer = strategy.load("app", "app");
+        final Config config = Config.getFixedConfig(layer);
+
+        body = "db.host=second-host\n";
+        version = 2;
+        strategy.pollNow();
+
+        Assert.assertThat(okResponses.get(), is(2));
+        Assert.assertThat(layer.getString("db.host"), is("second-host"));
+        Assert.assertThat(config.getGeneration(), is(2L));
+        Assert.assertThat(config.getConfiguration().getString("db.host"), is("second-host"));
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.config;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import com.google.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Builds the beans of several lazy {@link ConfigProvider}s concurrently as soon as the Config is injected.
+ * Guice performs requested injections before it creates singletons, so the providers hand out the beans
+ * built here. A provider that is asked first builds its bean itself and this builder skips it.
+ *
+ * @see ConfigBinder#inParallel()
+ */
+final class ConfigBeanPrebuilder
+{
+    private static final Logger LOG = LoggerFactory.getLogger(ConfigBeanPrebuilder.class);
+
+    private final List<ConfigProvider<?>> providers;
+
+    ConfigBeanPrebuilder(List<ConfigProvider<?>> providers)
+    {
+        this.providers = providers;
+    }
+
+    /**
+     * @throws IllegalStateException If any bean could not be built, listing all of them.
+     */
+    @Inject
+    void build(Config config)
+    {
+        final long start = System.nanoTime();
+        final List<String> errors = providers.parallelStream()
+            .map(provider -> {
+                try {
+                    provider.build(config);
+                    return null;
+                } catch (RuntimeException e) {
+                    return ConfigBeanValidator.describe(provider, e);
+                }
+            })
+            .filter(Objects::nonNull)
+            .sorted()
+            .collect(Collectors.toList());
+        LOG.debug("Built {} configuration beans in {} ms", providers.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        if (!errors.isEmpty()) {
+            throw ConfigBeanValidator.invalid(errors);
+        }
+    }
+}
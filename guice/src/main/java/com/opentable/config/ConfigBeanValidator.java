@@ -0,0 +1,110 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.config;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+import com.google.inject.Binding;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.Provider;
+import com.google.inject.spi.ProviderInstanceBinding;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads every value bound with {@link ConfigBinder#bindValue(String, Class)} while the injector is created, so
+ * that a value that cannot be converted fails startup instead of the first injection that needs it. All invalid
+ * values are reported together in one failure. Eager beans already fail when their provider is injected.
+ *
+ * Lazy beans stay lazy and are checked when they are first built. With {@code -Dot.config.validate-lazy-beans=true},
+ * lazy beans are built here as well, which also exports them to JMX. Beans and values are checked in parallel.
+ */
+final class ConfigBeanValidator
+{
+    static final String VALIDATE_LAZY_PROPERTY_NAME = "ot.config.validate-lazy-beans";
+
+    private static final Logger LOG = LoggerFactory.getLogger(ConfigBeanValidator.class);
+
+    @Inject
+    ConfigBeanValidator(Injector injector)
+    {
+        final boolean lazy = Boolean.getBoolean(VALIDATE_LAZY_PROPERTY_NAME);
+
+        final List<Provider<?>> providers = Lists.newArrayList();
+        for (Binding<?> binding : injector.getAllBindings().values()) {
+            if (binding instanceof ProviderInstanceBinding) {
+                final Object provider = ((ProviderInstanceBinding<?>) binding).getUserSuppliedProvider();
+                if (provider instanceof ConfigProvider && (lazy || !((ConfigProvider<?>) provider).isPending())) {
+                    providers.add((Provider<?>) provider);
+                }
+                else if (provider instanceof ConfigValueProvider) {
+                    providers.add((Provider<?>) provider);
+                }
+            }
+        }
+        validate(providers);
+    }
+
+    /**
+     * @throws IllegalStateException If any bean could not be built or any value could not be converted.
+     */
+    static void validate(List<Provider<?>> providers)
+    {
+        final long start = System.nanoTime();
+        final List<String> errors = providers.parallelStream()
+            .map(ConfigBeanValidator::check)
+            .filter(Objects::nonNull)
+            .sorted()
+            .collect(Collectors.toList());
+        LOG.debug("Validated {} configuration beans and values in {} ms", providers.size(),
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        if (!errors.isEmpty()) {
+            throw invalid(errors);
+        }
+    }
+
+    /**
+     * Returns a description of the error, or null if the bean or value is valid.
+     */
+    private static String check(Provider<?> provider)
+    {
+        try {
+            provider.get();
+            return null;
+        } catch (RuntimeException e) {
+            return describe(provider, e);
+        }
+    }
+
+    static String describe(Provider<?> provider, RuntimeException e)
+    {
+        final String name = provider instanceof ConfigProvider
+            ? ((ConfigProvider<?>) provider).getBeanClass().getName()
+            : "@ConfigValue(\"" + ((ConfigValueProvider<?>) provider).getKey() + "\")";
+        return String.format("%s: %s", name, e.getMessage() != null ? e.getMessage() : e);
+    }
+
+    static IllegalStateException invalid(List<String> errors)
+    {
+        return new IllegalStateException("Invalid configuration:\n  " + Joiner.on("\n  ").join(errors));
+    }
+}
@@ -13,38 +13,123 @@
  */
 package com.opentable.config;
 
+import java.util.List;
+
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Primitives;
 import com.google.inject.Binder;
+import com.google.inject.Key;
 import com.google.inject.Scopes;
 
 /**
  * Helper class for binding Configuration beans in Guice modules.
+ *
+ * <pre>
+ * ConfigBinder.of(binder()).lazily().bind(RarelyUsedConfig.class);
+ * ConfigBinder.of(binder()).inParallel().bind(DbConfig.class, HttpConfig.class, CacheConfig.class);
+ * ConfigBinder.of(binder()).bindValue("ot.http.timeout-ms", int.class);
+ * </pre>
  */
 public class ConfigBinder
 {
+    private enum Mode
+    {
+        EAGER, LAZY, PARALLEL
+    }
+
     /**
      * Create a {@code ConfigBinder} with the given {@link Binder}.
      */
     public static ConfigBinder of(Binder binder)
     {
-        return new ConfigBinder(binder);
+        return new ConfigBinder(binder, Mode.EAGER);
     }
 
     private final Binder binder;
+    private final Mode mode;
 
-    private ConfigBinder(Binder binder)
+    private ConfigBinder(Binder binder, Mode mode)
     {
         this.binder = binder;
+        this.mode = mode;
+    }
+
+    /**
+     * Returns a {@code ConfigBinder} whose beans are built on first use instead of when the injector is created.
+     * Lazy beans are bound without a scope, because the provider already hands out a single bean. A singleton
+     * scope would make {@code Stage.PRODUCTION} build them eagerly when the injector is created.
+     *
+     * @see ConfigProvider#lazy(Class)
+     */
+    public ConfigBinder lazily()
+    {
+        return new ConfigBinder(binder, Mode.LAZY);
+    }
+
+    /**
+     * Returns a {@code ConfigBinder} that builds all beans of a {@link #bind(Class...)} call concurrently on the
+     * common fork/join pool as soon as the Config is injected, so that the injector finds them already built.
+     */
+    public ConfigBinder inParallel()
+    {
+        return new ConfigBinder(binder, Mode.PARALLEL);
     }
 
     /**
      * Create default bindings for the given beans.
      */
-    @SafeVarargs
-    public final <T> ConfigBinder bind(Class<T>... configBeanClasses)
+    public final ConfigBinder bind(Class<?>... configBeanClasses)
     {
-        for (Class<T> klass : configBeanClasses) {
-            binder.bind(klass).toProvider(ConfigProvider.of(klass)).in(Scopes.SINGLETON);
+        final List<ConfigProvider<?>> providers = Lists.newArrayListWithCapacity(configBeanClasses.length);
+        for (Class<?> klass : configBeanClasses) {
+            providers.add(bindOne(klass));
+        }
+        if (mode == Mode.PARALLEL) {
+            binder.requestInjection(new ConfigBeanPrebuilder(providers));
         }
         return this;
     }
+
+    /**
+     * Binds a single configuration value for injection with {@code @ConfigValue(key)}. The value is read and
+     * converted once, when it is first injected. Strings, primitives and their wrappers, enums, {@link java.time.Duration},
+     * {@link DataSize} and {@link org.skife.config.TimeSpan} are supported.
+     */
+    public ConfigBinder bindValue(String key, Class<?> type)
+    {
+        return bindValue(key, type, null);
+    }
+
+    /**
+     * Binds a single configuration value for injection with {@code @ConfigValue(key)}, using the given default if
+     * the key has no value.
+     */
+    public ConfigBinder bindValue(String key, Class<?> type, String defaultValue)
+    {
+        bindWrappedValue(key, Primitives.wrap(type), defaultValue);
+        return this;
+    }
+
+    private <T> void bindWrappedValue(String key, Class<T> type, String defaultValue)
+    {
+        if (!ConfigValueProvider.isSupported(type)) {
+            binder.addError("Configuration value '%s' cannot be bound as %s", key, type.getName());
+            return;
+        }
+        binder.bind(Key.get(type, new ConfigValueImpl(key)))
+            .toProvider(new ConfigValueProvider<>(key, type, defaultValue))
+            .in(Scopes.SINGLETON);
+    }
+
+    private <T> ConfigProvider<T> bindOne(Class<T> klass)
+    {
+        final ConfigProvider<T> provider = (ConfigProvider<T>) (mode == Mode.EAGER ? ConfigProvider.of(klass) : ConfigProvider.lazy(klass));
+        if (mode == Mode.LAZY) {
+            binder.bind(klass).toProvider(provider);
+        }
+        else {
+            binder.bind(klass).toProvider(provider).in(Scopes.SINGLETON);
+        }
+        return provider;
+    }
 }
@@ -14,27 +14,38 @@
 package com.opentable.config;
 
 import java.io.Closeable;
-import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.annotation.concurrent.GuardedBy;
-import javax.management.InstanceAlreadyExistsException;
+import javax.management.DynamicMBean;
 import javax.management.InstanceNotFoundException;
 import javax.management.JMException;
 import javax.management.MBeanRegistrationException;
 import javax.management.MBeanServer;
 import javax.management.MalformedObjectNameException;
-import javax.management.NotCompliantMBeanException;
 import javax.management.ObjectName;
+import javax.management.StandardMBean;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Splitter;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import com.google.inject.name.Named;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -45,6 +56,19 @@ import com.opentable.lifecycle.guice.OnStage;
 /**
  * Export Config objects and all ConfigMagic beans in JMX, if the MBeanServer
  * is bound in the Guice injector.
+ *
+ * Exports are queued until {@link #start()}, which {@link ConfigModule} calls once
+ * injector creation is done, and are then registered in batches on a background
+ * thread, so that injecting configuration beans never waits for the MBeanServer.
+ * A closed exporter refuses all further exports.
+ *
+ * The exporter is configured with optional named constants, which {@link ConfigModule}
+ * binds: {@link #BLOCKING_EXPORT_NAME} set to true registers every export on the
+ * calling thread instead, which {@link ConfigModule#forTesting()} does. With
+ * {@link #PREFIX_DEPTH_NAME} set to n, which {@code -Dot.config.jmx-prefix-depth=n} does,
+ * the configuration is exported as one MBean per key prefix of up to n segments
+ * ({@code config=PREFIX,prefix="ot.db"}) instead of a single MBean with all keys, so that
+ * clients can fetch only the part they need.
  */
 @Singleton
 class ConfigJmxExporter implements Closeable
@@ -52,17 +76,42 @@ class ConfigJmxExporter implements Closeable
     private static final Logger LOG = LoggerFactory.getLogger(ConfigJmxExporter.class);
     private static final String ROOT = ConfigJmxExporter.class.getPackage().getName();
 
+    static final String BLOCKING_EXPORT_NAME = "ot.config.jmx-export-blocking";
+    static final String PREFIX_DEPTH_NAME = "ot.config.jmx-prefix-depth";
+
     private final Config config;
 
+    /** All beans ever exported by name, to export them again if the MBeanServer changes. */
+    private final ConcurrentMap<ObjectName, Entry<? extends Class<?>, Object>> exportedBeans = Maps.newConcurrentMap();
+    private final Queue<ObjectName> pendingExports = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+    private final ConfigChangeListener prefixListener = this::prefixesChanged;
+
+    private volatile boolean blocking = false;
+    private volatile int prefixDepth = 0;
+    private volatile boolean started = false;
+    private volatile boolean closed = false;
+    private volatile boolean prefixesStale = false;
+
     @GuardedBy("this")
     private MBeanServer server;
 
     @GuardedBy("this")
-    private final List<Entry<? extends Class<?>, Object>> delayedBeanExports = new ArrayList<Entry<? extends Class<?>, Object>>();
+    private boolean configExported = false;
 
     @GuardedBy("this")
     private final Set<ObjectName> currentExports = Sets.newHashSet();
 
+    /** The registered bean of each prefix, modified only while holding the exporter monitor. */
+    private final ConcurrentMap<String, ConfigDynamicMBean> prefixBeans = Maps.newConcurrentMap();
+
+    /** Separate from the exporter monitor, which a drain holds while it registers beans. */
+    private final Object executorLock = new Object();
+
+    @GuardedBy("executorLock")
+    private ExecutorService executor;
+
     @Inject
     ConfigJmxExporter(Config config)
     {
@@ -70,63 +119,272 @@ class ConfigJmxExporter implements Closeable
     }
 
     @Inject(optional=true)
-    synchronized void setMBeanServer(MBeanServer server)
+    void setBlockingExport(@Named(BLOCKING_EXPORT_NAME) boolean blocking)
+    {
+        this.blocking = blocking;
+    }
+
+    @Inject(optional=true)
+    void setPrefixDepth(@Named(PREFIX_DEPTH_NAME) int prefixDepth)
+    {
+        Preconditions.checkState(!started, "prefix depth must be set before the exporter starts");
+        this.prefixDepth = prefixDepth;
+    }
+
+    /**
+     * Starts registering the queued exports and all later ones.
+     */
+    void start()
+    {
+        synchronized (this) {
+            if (started || closed) {
+                return;
+            }
+            started = true;
+            if (prefixDepth > 0) {
+                config.addChangeListener(prefixListener);
+            }
+        }
+        requestDrain();
+    }
+
+    @Inject(optional=true)
+    void setMBeanServer(MBeanServer server)
     {
         Preconditions.checkArgument(server != null, "null MBeanServer");
 
-        if (this.server != server) {
-            close();
+        synchronized (this) {
+            if (this.server != server) {
+                unexportAll();
+                prefixBeans.clear();
+                configExported = false;
+                pendingExports.addAll(exportedBeans.keySet());
+            }
+            this.server = server;
         }
+        requestDrain();
+    }
 
-        this.server = server;
+    void export(Class<?> realClass, Object configBean)
+    {
+        if (closed) {
+            LOG.debug("Not exporting {}, the exporter is closed", realClass);
+            return;
+        }
 
+        ObjectName objectName;
         try {
-            exportConfig();
-        } catch (JMException e) {
-            LOG.error("Unable to export configuration tree to JMX", e);
+            objectName = new ObjectName(munge(realClass.getName()));
+        } catch (MalformedObjectNameException e) {
+            LOG.error("Bad munged name for {}", realClass, e);
+            return;
+        }
+
+        if (exportedBeans.putIfAbsent(objectName, Maps.immutableEntry(realClass, configBean)) == null) {
+            pendingExports.add(objectName);
+            requestDrain();
+        }
+    }
+
+    /**
+     * Register all queued exports on the calling thread.
+     */
+    synchronized void flush()
+    {
+        if (!started || closed || server == null) {
+            return; // Exports stay queued until the exporter is started and the MBeanServer is known.
+        }
+
+        if (!configExported) {
+            if (prefixDepth > 0) {
+                prefixesStale = false;
+                exportPrefixes();
+                configExported = true;
+            }
+            else {
+                configExported = registerConfig("ROOT", new ConfigDynamicMBean("com.opentable.config.Config", config));
+            }
+
+            registerConfig("SOURCES", new StandardMBean(new ConfigSources(config), ConfigSourcesMXBean.class, true));
+
+            if (config.getAccessTracker() != null) {
+                registerConfig("ACCESS", new StandardMBean(new ConfigAccess(config, config.getAccessTracker()), ConfigAccessMXBean.class, true));
+            }
+        }
+        else if (prefixesStale) {
+            prefixesStale = false;
+            exportPrefixes();
         }
 
-        for (Entry<? extends Class<?>, Object> e : delayedBeanExports) {
-            export(e.getKey(), e.getValue());
+        final List<ObjectName> batch = Lists.newArrayList();
+        for (ObjectName name = pendingExports.poll(); name != null; name = pendingExports.poll()) {
+            batch.add(name);
+        }
+        for (ObjectName name : batch) {
+            register(name, exportedBeans.get(name));
+        }
+        if (!batch.isEmpty()) {
+            LOG.debug("Exported {} configuration beans", batch.size());
         }
     }
 
-    private void exportConfig() throws JMException
+    /**
+     * Registers an MBean of the configuration itself as {@code config=<type>}. MXBeans are wrapped
+     * in a {@link StandardMBean}, so that every bean is a DynamicMBean like the ROOT bean.
+     */
+    @GuardedBy("this")
+    private boolean registerConfig(String type, DynamicMBean mbean)
     {
-        server.registerMBean(new ConfigDynamicMBean("com.opentable.config.Config", config), new ObjectName(ROOT + ":config=ROOT"));
+        try {
+            ObjectName objectName = new ObjectName(ROOT + ":config=" + type);
+            server.registerMBean(mbean, objectName);
+            currentExports.add(objectName);
+            return true;
+        } catch (JMException | RuntimeException e) {
+            LOG.error("Unable to export configuration {} to JMX", type, e);
+            return false;
+        }
     }
 
-    synchronized void export(Class<?> realClass, Object configBean)
+    /**
+     * Compares the snapshots once and passes every prefix bean its changed keys. Keys that were added
+     * or removed may need new prefix beans or leave prefixes without keys, which the next drain handles.
+     */
+    private void prefixesChanged(ConfigSnapshot previous, ConfigSnapshot current)
     {
-        MBeanServer server = this.server;
-        if (server == null)
-        {
-            delayedBeanExports.add(Maps.immutableEntry(realClass, configBean));
-            return;
+        ListMultimap<String, String> changedKeys = ArrayListMultimap.create();
+        boolean keySetChanged = false;
+        for (String key : current.getChangedKeys(previous)) {
+            changedKeys.put(ConfigDynamicMBean.prefixOf(key, prefixDepth), key);
+            keySetChanged |= !previous.containsKey(key) || !current.containsKey(key);
         }
 
-        ObjectName objectName;
-        try {
-            objectName = new ObjectName(munge(realClass.getName()));
-        } catch (MalformedObjectNameException e) {
-            throw new UnsupportedOperationException("bad munged name for " + realClass, e);
+        for (String prefix : changedKeys.keySet()) {
+            ConfigDynamicMBean bean = prefixBeans.get(prefix);
+            if (bean != null) {
+                bean.update(previous, current, changedKeys.get(prefix));
+            }
         }
 
+        if (keySetChanged) {
+            prefixesStale = true;
+            requestDrain();
+        }
+    }
+
+    /**
+     * Registers a bean for every prefix that has keys, and unregisters the beans of prefixes whose
+     * keys are all gone.
+     */
+    @GuardedBy("this")
+    private void exportPrefixes()
+    {
+        Set<String> prefixes = Sets.newHashSet();
+        for (String key : config.getSnapshot().getKeys()) {
+            prefixes.add(ConfigDynamicMBean.prefixOf(key, prefixDepth));
+        }
+
+        for (String prefix : prefixes) {
+            if (!prefixBeans.containsKey(prefix)) {
+                ConfigDynamicMBean bean = new ConfigDynamicMBean("com.opentable.config.Config", config, prefix, prefixDepth);
+                try {
+                    ObjectName objectName = prefixName(prefix);
+                    server.registerMBean(bean, objectName);
+                    currentExports.add(objectName);
+                    prefixBeans.put(prefix, bean);
+                } catch (JMException e) {
+                    LOG.error("Unable to export configuration prefix '{}' to JMX", prefix, e);
+                }
+            }
+        }
+
+        for (Iterator<String> it = prefixBeans.keySet().iterator(); it.hasNext(); ) {
+            String prefix = it.next();
+            if (!prefixes.contains(prefix)) {
+                it.remove();
+                try {
+                    ObjectName objectName = prefixName(prefix);
+                    currentExports.remove(objectName);
+                    server.unregisterMBean(objectName);
+                } catch (JMException e) {
+                    LOG.warn("Unable to unregister configuration prefix '{}'", prefix, e);
+                }
+            }
+        }
+    }
+
+    private static ObjectName prefixName(String prefix) throws MalformedObjectNameException
+    {
+        return new ObjectName(ROOT + ":config=PREFIX,prefix=" + ObjectName.quote(prefix));
+    }
+
+    private void requestDrain()
+    {
+        if (!started || closed) {
+            return;
+        }
+        if (blocking) {
+            flush();
+        }
+        else if (drainScheduled.compareAndSet(false, true)) {
+            synchronized (executorLock) {
+                if (closed) {
+                    return;
+                }
+                if (executor == null) {
+                    executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                        .setNameFormat("config-jmx-exporter-%d")
+                        .setDaemon(true)
+                        .build());
+                }
+                executor.execute(() -> {
+                    // Reset before draining, so that exports queued during the drain schedule another one.
+                    drainScheduled.set(false);
+                    flush();
+                });
+            }
+        }
+    }
+
+    @GuardedBy("this")
+    private void register(ObjectName objectName, Entry<? extends Class<?>, Object> export)
+    {
         if (!currentExports.add(objectName)) {
             return; // Already exported
         }
 
+        Class<?> realClass = export.getKey();
         try {
-            server.registerMBean(new ConfigMagicDynamicMBean(realClass.getName(), configBean),
+            server.registerMBean(new ConfigMagicDynamicMBean(realClass.getName(), export.getValue()),
                     objectName);
-        } catch (InstanceAlreadyExistsException | MBeanRegistrationException | NotCompliantMBeanException e) {
-            throw new RuntimeException("Unable to export bean for " + realClass, e);
+        } catch (JMException e) {
+            LOG.error("Unable to export bean for {}", realClass, e);
         }
     }
 
+    /**
+     * Unexports everything. The exporter cannot be started again and ignores all later exports.
+     */
     @OnStage(LifecycleStage.STOP)
     @Override
-    public synchronized void close() {
+    public void close() {
+        synchronized (executorLock) {
+            closed = true;
+            if (executor != null) {
+                executor.shutdownNow();
+                executor = null;
+            }
+        }
+        synchronized (this) {
+            config.removeChangeListener(prefixListener);
+            if (server != null) {
+                unexportAll();
+            }
+        }
+    }
+
+    @GuardedBy("this")
+    private void unexportAll() {
         for (ObjectName name : currentExports) {
             try {
                 server.unregisterMBean(name);
@@ -13,11 +13,13 @@
  */
 package com.opentable.config;
 
+import java.io.IOException;
 
 import com.google.inject.AbstractModule;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 import com.google.inject.Scopes;
+import com.google.inject.name.Names;
 import com.google.inject.util.Providers;
 
 import org.slf4j.Logger;
@@ -34,15 +36,22 @@ public class ConfigModule extends AbstractModule
 {
     private static final Logger LOG = LoggerFactory.getLogger(ConfigModule.class);
     private final Provider<Config> configProvider;
+    private final boolean blockingJmxExport;
 
+    /**
+     * Config module with the given values. Configuration beans are exported to JMX before injection completes.
+     */
     public static ConfigModule forTesting(final String ... keyValuePairs)
     {
-        return new ConfigModule(Config.getFixedConfig(keyValuePairs));
+        return new ConfigModule(Providers.of(Config.getFixedConfig(keyValuePairs)), true);
     }
 
+    /**
+     * Config module without any values. Configuration beans are exported to JMX before injection completes.
+     */
     public static ConfigModule forTesting()
     {
-        return new ConfigModule(Config.getEmptyConfig());
+        return new ConfigModule(Providers.of(Config.getEmptyConfig()), true);
     }
 
     /**
@@ -60,6 +69,7 @@ public class ConfigModule extends AbstractModule
                 return Config.getConfig();
             }
         };
+        this.blockingJmxExport = false;
     }
 
     /**
@@ -68,7 +78,13 @@ public class ConfigModule extends AbstractModule
      */
     public ConfigModule(final Config config)
     {
-        this.configProvider = Providers.of(config);
+        this(Providers.of(config), false);
+    }
+
+    private ConfigModule(final Provider<Config> configProvider, final boolean blockingJmxExport)
+    {
+        this.configProvider = configProvider;
+        this.blockingJmxExport = blockingJmxExport;
     }
 
     /**
@@ -85,7 +101,29 @@ public class ConfigModule extends AbstractModule
     {
         bind(Config.class).toProvider(configProvider).in(Scopes.SINGLETON);
         bind(ConfigJmxExporter.class).asEagerSingleton();
+        if (blockingJmxExport) {
+            bind(Boolean.class).annotatedWith(Names.named(ConfigJmxExporter.BLOCKING_EXPORT_NAME)).toInstance(Boolean.TRUE);
+        }
+        final Integer jmxPrefixDepth = Integer.getInteger(ConfigJmxExporter.PREFIX_DEPTH_NAME);
+        if (jmxPrefixDepth != null) {
+            bind(Integer.class).annotatedWith(Names.named(ConfigJmxExporter.PREFIX_DEPTH_NAME)).toInstance(jmxPrefixDepth);
+        }
         bind(ConfigDebugger.class).asEagerSingleton();
+        bind(ConfigBeanValidator.class).asEagerSingleton();
+        // Bound last: Guice creates eager singletons after all other injections, in the order they are bound.
+        bind(ConfigJmxStarter.class).asEagerSingleton();
+    }
+
+    /**
+     * Starts the JMX export once the injector has built and injected everything else.
+     */
+    static class ConfigJmxStarter
+    {
+        @Inject
+        ConfigJmxStarter(ConfigJmxExporter exporter)
+        {
+            exporter.start();
+        }
     }
 
     static class ConfigDebugger
@@ -93,7 +131,52 @@ public class ConfigModule extends AbstractModule
         @Inject
         ConfigDebugger(Config config)
         {
-            LOG.debug("Built configuration: {}", config);
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Built configuration:");
+                try {
+                    config.dumpTo(new LineLogger());
+                } catch (IOException e) {
+                    throw new AssertionError(e); // LineLogger does not throw.
+                }
+            }
+        }
+    }
+
+    /**
+     * Logs every line appended to it on its own, so that the dump is never held in memory as a whole.
+     */
+    private static class LineLogger implements Appendable
+    {
+        private final StringBuilder line = new StringBuilder();
+
+        @Override
+        public Appendable append(CharSequence csq)
+        {
+            final CharSequence s = csq == null ? "null" : csq;
+            return append(s, 0, s.length());
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end)
+        {
+            final CharSequence s = csq == null ? "null" : csq;
+            for (int i = start; i < end; i++) {
+                append(s.charAt(i));
+            }
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c)
+        {
+            if (c == '\n') {
+                LOG.debug("{}", line);
+                line.setLength(0);
+            }
+            else {
+                line.append(c);
+            }
+            return this;
         }
     }
 }
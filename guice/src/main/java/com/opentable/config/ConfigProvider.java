@@ -15,6 +15,7 @@ package com.opentable.config;
 
 
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.annotation.Nullable;
 
@@ -25,6 +26,9 @@ import com.google.inject.Provider;
 /**
  * Provides an arbitrary configuration bean which is configured from the main Config object.
  *
+ * A lazy provider (see {@link #lazy(String, Class)}) builds its bean on the first call to {@link #get()}
+ * instead of when the Config is injected, so that beans which are bound but never used cost nothing.
+ *
  * @param <T> The type of the configuration bean.
  */
 public final class ConfigProvider<T> implements Provider<T>
@@ -32,9 +36,13 @@ public final class ConfigProvider<T> implements Provider<T>
     private final String prefix;
     private final Class<T> clazz;
     private final Map<String, String> overrides;
+    private final boolean lazy;
 
+    private volatile Config config = null;
     private volatile T configBean = null;
+    private volatile boolean buildAttempted = false;
     private volatile ConfigJmxExporter exporter;
+    private final AtomicBoolean exported = new AtomicBoolean();
 
     /**
      * Returns a Provider for a configuration bean. This method should be used in Modules
@@ -45,7 +53,7 @@ public final class ConfigProvider<T> implements Provider<T>
      */
     public static <TYPE> Provider<TYPE> of(final Class<TYPE> clazz)
     {
-        return new ConfigProvider<TYPE>(null, clazz, null);
+        return new ConfigProvider<TYPE>(null, clazz, null, false);
     }
 
     /**
@@ -59,7 +67,7 @@ public final class ConfigProvider<T> implements Provider<T>
      */
     public static <TYPE> Provider<TYPE> of(@Nullable final String prefix, final Class<TYPE> clazz)
     {
-        return new ConfigProvider<TYPE>(prefix, clazz, null);
+        return new ConfigProvider<TYPE>(prefix, clazz, null, false);
     }
 
     /**
@@ -74,7 +82,7 @@ public final class ConfigProvider<T> implements Provider<T>
     public static <TYPE> Provider<TYPE> of(@Nullable final String prefix, final Class<TYPE> clazz,
             @Nullable final Map<String, String> overrides)
     {
-        return new ConfigProvider<TYPE>(prefix, clazz, overrides);
+        return new ConfigProvider<TYPE>(prefix, clazz, overrides, false);
     }
 
     /**
@@ -90,18 +98,64 @@ public final class ConfigProvider<T> implements Provider<T>
         return of(null, clazz, overrides);
     }
 
-    private ConfigProvider(final String prefix, final Class<T> clazz, final Map<String, String> overrides)
+    /**
+     * Returns a Provider that builds its configuration bean on first use. The bean is exported to JMX
+     * only once it is built.
+     * @param <TYPE> The type of the Configuration bean.
+     * @param clazz The class of the Configuration bean.
+     * @return A provider.
+     */
+    public static <TYPE> Provider<TYPE> lazy(final Class<TYPE> clazz)
+    {
+        return new ConfigProvider<TYPE>(null, clazz, null, true);
+    }
+
+    /**
+     * Returns a Provider that builds its configuration bean on first use. The bean is exported to JMX
+     * only once it is built.
+     * @param <TYPE> The type of the Configuration bean.
+     * @param prefix The Config bean prefix, as referenced below (may be null)
+     * @param clazz The class of the Configuration bean.
+     * @return A provider.
+     * @see Config#getBean(String, Class)
+     */
+    public static <TYPE> Provider<TYPE> lazy(@Nullable final String prefix, final Class<TYPE> clazz)
+    {
+        return new ConfigProvider<TYPE>(prefix, clazz, null, true);
+    }
+
+    private ConfigProvider(final String prefix, final Class<T> clazz, final Map<String, String> overrides, final boolean lazy)
     {
         this.prefix = prefix;
         this.clazz = clazz;
         this.overrides = overrides;
+        this.lazy = lazy;
     }
 
+    Class<T> getBeanClass()
+    {
+        return clazz;
+    }
+
+    /**
+     * Returns true for a lazy provider whose bean nobody tried to build yet.
+     */
+    boolean isPending()
+    {
+        return lazy && !buildAttempted;
+    }
+
+    /**
+     * Builds the bean unless the provider is lazy. A bean that cannot be built fails member injection, and
+     * Guice reports the errors of all such beans together.
+     */
     @Inject
     public void setConfig(final Config config)
     {
-        this.configBean = config.getBean(prefix, clazz, overrides);
-        tryExport();
+        this.config = config;
+        if (!lazy) {
+            build(config);
+        }
     }
 
     @Inject(optional=true)
@@ -113,7 +167,8 @@ public final class ConfigProvider<T> implements Provider<T>
 
     private void tryExport()
     {
-        if (exporter != null && configBean != null) {
+        // Both fields are volatile, so of two racing callers at least one sees both set.
+        if (exporter != null && configBean != null && exported.compareAndSet(false, true)) {
             exporter.export(clazz, configBean);
         }
     }
@@ -121,7 +176,31 @@ public final class ConfigProvider<T> implements Provider<T>
     @Override
     public T get()
     {
-        Preconditions.checkState(configBean != null, "configuration was never injected");
-        return configBean;
+        final T bean = configBean;
+        if (bean != null) {
+            return bean;
+        }
+        Preconditions.checkState(config != null, "configuration was never injected");
+        return build(config);
+    }
+
+    /**
+     * Builds the bean from the given Config, unless it was built already.
+     */
+    T build(final Config config)
+    {
+        T bean = configBean;
+        if (bean == null) {
+            synchronized (this) {
+                bean = configBean;
+                if (bean == null) {
+                    buildAttempted = true;
+                    bean = config.getBean(prefix, clazz, overrides);
+                    configBean = bean;
+                }
+            }
+            tryExport();
+        }
+        return bean;
     }
 }
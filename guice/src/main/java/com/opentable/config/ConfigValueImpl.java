@@ -0,0 +1,65 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.config;
+
+import java.io.Serializable;
+import java.lang.annotation.Annotation;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * An instance of {@link ConfigValue} to build binding keys with, as specified by {@link Annotation}.
+ */
+final class ConfigValueImpl implements ConfigValue, Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    private final String value;
+
+    ConfigValueImpl(String value)
+    {
+        this.value = Preconditions.checkNotNull(value, "key");
+    }
+
+    @Override
+    public String value()
+    {
+        return value;
+    }
+
+    @Override
+    public Class<? extends Annotation> annotationType()
+    {
+        return ConfigValue.class;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        // This is specified in java.lang.annotation.Annotation.
+        return (127 * "value".hashCode()) ^ value.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object other)
+    {
+        return other instanceof ConfigValue && value.equals(((ConfigValue) other).value());
+    }
+
+    @Override
+    public String toString()
+    {
+        return "@" + ConfigValue.class.getName() + "(value=" + value + ")";
+    }
+}
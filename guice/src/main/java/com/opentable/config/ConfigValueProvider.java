@@ -0,0 +1,98 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.config;
+
+import java.time.Duration;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+
+import org.skife.config.TimeSpan;
+
+/**
+ * Provides a single configuration value, read from the configuration snapshot and converted once.
+ */
+final class ConfigValueProvider<T> implements Provider<T>
+{
+    private interface Converter
+    {
+        Object convert(String value);
+    }
+
+    private static final ImmutableMap<Class<?>, Converter> CONVERTERS = ImmutableMap.<Class<?>, Converter>builder()
+        .put(String.class, value -> value)
+        .put(Boolean.class, Boolean::valueOf)
+        .put(Byte.class, Byte::valueOf)
+        .put(Short.class, Short::valueOf)
+        .put(Integer.class, Integer::valueOf)
+        .put(Long.class, Long::valueOf)
+        .put(Float.class, Float::valueOf)
+        .put(Double.class, Double::valueOf)
+        .put(Duration.class, ConfigBeanSupport::toDuration)
+        .put(DataSize.class, DataSize::parse)
+        .put(TimeSpan.class, TimeSpan::new)
+        .build();
+
+    private final String key;
+    private final Class<T> type;
+    private final String defaultValue;
+
+    private Config config;
+
+    ConfigValueProvider(String key, Class<T> type, String defaultValue)
+    {
+        this.key = key;
+        this.type = type;
+        this.defaultValue = defaultValue;
+    }
+
+    String getKey()
+    {
+        return key;
+    }
+
+    /**
+     * Returns whether values of the given (wrapper) type can be bound.
+     */
+    static boolean isSupported(Class<?> type)
+    {
+        return CONVERTERS.containsKey(type) || type.isEnum();
+    }
+
+    @Inject
+    void setConfig(Config config)
+    {
+        this.config = config;
+    }
+
+    @Override
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public T get()
+    {
+        Preconditions.checkState(config != null, "configuration was never injected");
+        String value = config.getSnapshot().getString(key);
+        if (value == null) {
+            value = defaultValue;
+        }
+        Preconditions.checkState(value != null, "No value for configuration key '%s'", key);
+
+        if (type.isEnum()) {
+            final Object constant = ConfigBeanSupport.toEnum((Class) type, value);
+            return type.cast(constant);
+        }
+        return type.cast(CONVERTERS.get(type).convert(value));
+    }
+}
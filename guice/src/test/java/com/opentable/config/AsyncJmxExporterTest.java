@@ -0,0 +1,146 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.config;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Inject;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.weakref.jmx.testing.TestingMBeanServer;
+
+public class AsyncJmxExporterTest
+{
+    public interface MyBean
+    {
+        @org.skife.config.Config("test.x")
+        String getX();
+    }
+
+    public interface OtherBean
+    {
+        @org.skife.config.Config("test.y")
+        String getY();
+    }
+
+    MBeanServer server = new TestingMBeanServer();
+
+    @Inject
+    ConfigJmxExporter exporter;
+
+    @Before
+    public void setUp()
+    {
+        Guice.createInjector(new AbstractModule() {
+            @Override
+            protected void configure()
+            {
+                bind (MBeanServer.class).toInstance(server);
+                install (new ConfigModule(Config.getFixedConfig("test.x", "foo", "test.y", "bar")));
+                bind (MyBean.class).toProvider(ConfigProvider.of(MyBean.class));
+                bind (OtherBean.class).toProvider(ConfigProvider.of(OtherBean.class));
+            }
+        }).injectMembers(this);
+    }
+
+    @After
+    public void tearDown()
+    {
+        exporter.close();
+    }
+
+    @Test
+    public void testExportedInBackground() throws Exception
+    {
+        ObjectName myBean = new ObjectName("com.opentable.config:n0=com,n1=opentable,n2=config,n3=AsyncJmxExporterTest$MyBean");
+        ObjectName otherBean = new ObjectName("com.opentable.config:n0=com,n1=opentable,n2=config,n3=AsyncJmxExporterTest$OtherBean");
+
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!(server.isRegistered(myBean) && server.isRegistered(otherBean)) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        Assert.assertEquals("foo", server.getAttribute(myBean, "x"));
+        Assert.assertEquals("bar", server.getAttribute(otherBean, "y"));
+        Assert.assertTrue(server.isRegistered(new ObjectName("com.opentable.config:config=ROOT")));
+    }
+
+    @Test
+    public void testFlush() throws Exception
+    {
+        exporter.flush();
+
+        ObjectName myBean = new ObjectName("com.opentable.config:n0=com,n1=opentable,n2=config,n3=AsyncJmxExporterTest$MyBean");
+        Assert.assertEquals("foo", server.getAttribute(myBean, "x"));
+    }
+
+    @Test
+    public void testSwitchServer() throws Exception
+    {
+        exporter.flush();
+
+        MBeanServer other = new TestingMBeanServer();
+        exporter.setMBeanServer(other);
+        exporter.flush();
+
+        for (String name : new String[] { "config=ROOT", "config=SOURCES", "n0=com,n1=opentable,n2=config,n3=AsyncJmxExporterTest$MyBean" }) {
+            ObjectName objectName = new ObjectName("com.opentable.config:" + name);
+            Assert.assertFalse(name, server.isRegistered(objectName));
+            Assert.assertTrue(name, other.isRegistered(objectName));
+        }
+
+        // SOURCES is an MXBean, exported as a DynamicMBean so that any MBeanServer accepts it.
+        Assert.assertEquals("layer 0", other.invoke(new ObjectName("com.opentable.config:config=SOURCES"), "source",
+            new Object[] { "test.x" }, new String[] { String.class.getName() }));
+    }
+
+    @Test
+    public void testExportsWaitForStart() throws Exception
+    {
+        ConfigJmxExporter late = new ConfigJmxExporter(Config.getFixedConfig("test.x", "foo"));
+        try {
+            MBeanServer other = new TestingMBeanServer();
+            late.setBlockingExport(true);
+            late.setMBeanServer(other);
+            late.export(MyBean.class, Config.getFixedConfig("test.x", "foo").getBean(MyBean.class));
+
+            ObjectName myBean = new ObjectName("com.opentable.config:n0=com,n1=opentable,n2=config,n3=AsyncJmxExporterTest$MyBean");
+            Assert.assertFalse(other.isRegistered(myBean));
+
+            late.start();
+            Assert.assertEquals("foo", other.getAttribute(myBean, "x"));
+        } finally {
+            late.close();
+        }
+    }
+
+    @Test
+    public void testRefusesExportsAfterClose() throws Exception
+    {
+        exporter.close();
+        exporter.export(OtherBean.class, Config.getFixedConfig("test.y", "baz").getBean(OtherBean.class));
+        exporter.flush();
+
+        Assert.assertFalse(server.isRegistered(new ObjectName("com.opentable.config:n0=com,n1=opentable,n2=config,n3=AsyncJmxExporterTest$OtherBean")));
+        Assert.assertFalse(server.isRegistered(new ObjectName("com.opentable.config:config=ROOT")));
+    }
+}
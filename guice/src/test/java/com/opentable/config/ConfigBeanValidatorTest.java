@@ -0,0 +1,133 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.config;
+
+import static org.hamcrest.CoreMatchers.containsString;
+
+import com.google.common.collect.ImmutableList;
+import com.google.inject.AbstractModule;
+import com.google.inject.CreationException;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Provider;
+import com.google.inject.ProvisionException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.skife.config.Default;
+
+public class ConfigBeanValidatorTest
+{
+    public interface PortConfig
+    {
+        @org.skife.config.Config("ot.port")
+        @Default("80")
+        int getPort();
+    }
+
+    public interface CountConfig
+    {
+        @org.skife.config.Config("ot.count")
+        @Default("1")
+        long getCount();
+    }
+
+    public interface NameConfig
+    {
+        @org.skife.config.Config("ot.name")
+        @Default("none")
+        String getName();
+    }
+
+    @After
+    public void tearDown()
+    {
+        System.clearProperty(ConfigBeanValidator.VALIDATE_LAZY_PROPERTY_NAME);
+    }
+
+    @Test
+    public void testValidBeans()
+    {
+        final ConfigProvider<?> provider = (ConfigProvider<?>) ConfigProvider.lazy(PortConfig.class);
+        provider.setConfig(Config.getFixedConfig("ot.port", "8080"));
+        ConfigBeanValidator.validate(ImmutableList.<Provider<?>>of(provider));
+    }
+
+    @Test
+    public void testReportsAllInvalidBeansAtOnce()
+    {
+        try {
+            Guice.createInjector(new AbstractModule() {
+                @Override
+                protected void configure()
+                {
+                    install (ConfigModule.forTesting("ot.port", "eighty", "ot.count", "many"));
+                    bind(PortConfig.class).toProvider(ConfigProvider.of(PortConfig.class));
+                    ConfigBinder.of(binder()).bind(CountConfig.class);
+                }
+            });
+            Assert.fail();
+        } catch (CreationException e) {
+            Assert.assertThat(e.getMessage(), containsString("eighty"));
+            Assert.assertThat(e.getMessage(), containsString("many"));
+        }
+    }
+
+    @Test
+    public void testReportsAllInvalidValuesAtOnce()
+    {
+        System.setProperty(ConfigBeanValidator.VALIDATE_LAZY_PROPERTY_NAME, "true");
+        try {
+            Guice.createInjector(new AbstractModule() {
+                @Override
+                protected void configure()
+                {
+                    install (ConfigModule.forTesting("ot.count", "many", "ot.timeout", "soon", "ot.retries", "few"));
+                    ConfigBinder.of(binder()).lazily().bind(CountConfig.class);
+                    ConfigBinder.of(binder()).inParallel().bind(NameConfig.class);
+                    ConfigBinder.of(binder()).bindValue("ot.timeout", java.time.Duration.class);
+                    ConfigBinder.of(binder()).bindValue("ot.retries", int.class);
+                }
+            });
+            Assert.fail();
+        } catch (CreationException e) {
+            Assert.assertThat(e.getMessage(), containsString("Invalid configuration"));
+            Assert.assertThat(e.getMessage(), containsString(CountConfig.class.getName()));
+            Assert.assertThat(e.getMessage(), containsString("@ConfigValue(\"ot.timeout\")"));
+            Assert.assertThat(e.getMessage(), containsString("@ConfigValue(\"ot.retries\")"));
+        }
+    }
+
+    @Test
+    public void testLazyBeansStayLazy()
+    {
+        final Injector injector = Guice.createInjector(new AbstractModule() {
+            @Override
+            protected void configure()
+            {
+                install (ConfigModule.forTesting("ot.count", "many"));
+                ConfigBinder.of(binder()).lazily().bind(CountConfig.class);
+                bind(PortConfig.class).toProvider(ConfigProvider.of(PortConfig.class));
+            }
+        });
+
+        try {
+            injector.getInstance(CountConfig.class);
+            Assert.fail();
+        } catch (ProvisionException e) {
+            Assert.assertThat(e.getMessage(), containsString("many"));
+        }
+    }
+}
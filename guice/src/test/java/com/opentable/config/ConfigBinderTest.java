@@ -0,0 +1,109 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.config;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Stage;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.skife.config.Default;
+import org.weakref.jmx.testing.TestingMBeanServer;
+
+public class ConfigBinderTest
+{
+    public interface FirstBean
+    {
+        @org.skife.config.Config("test.first")
+        String getFirst();
+    }
+
+    public interface SecondBean
+    {
+        @org.skife.config.Config("test.second")
+        @Default("2")
+        int getSecond();
+    }
+
+    private final MBeanServer server = new TestingMBeanServer();
+
+    private Injector createInjector(final boolean parallel)
+    {
+        return createInjector(Stage.DEVELOPMENT, parallel);
+    }
+
+    private Injector createInjector(final Stage stage, final boolean parallel)
+    {
+        return Guice.createInjector(stage, new AbstractModule() {
+            @Override
+            protected void configure()
+            {
+                bind (MBeanServer.class).toInstance(server);
+                install (ConfigModule.forTesting("test.first", "one"));
+                final ConfigBinder configBinder = ConfigBinder.of(binder());
+                (parallel ? configBinder.inParallel() : configBinder.lazily()).bind(FirstBean.class, SecondBean.class);
+            }
+        });
+    }
+
+    @Test
+    public void testParallel() throws Exception
+    {
+        final Injector injector = createInjector(true);
+
+        // Built and exported before anyone asked for them.
+        Assert.assertTrue(server.isRegistered(beanName("FirstBean")));
+        Assert.assertTrue(server.isRegistered(beanName("SecondBean")));
+
+        Assert.assertEquals("one", injector.getInstance(FirstBean.class).getFirst());
+        Assert.assertEquals(2, injector.getInstance(SecondBean.class).getSecond());
+        Assert.assertSame(injector.getInstance(FirstBean.class), injector.getInstance(FirstBean.class));
+    }
+
+    @Test
+    public void testLazy() throws Exception
+    {
+        final Injector injector = createInjector(false);
+
+        Assert.assertFalse(server.isRegistered(beanName("FirstBean")));
+
+        Assert.assertEquals("one", injector.getInstance(FirstBean.class).getFirst());
+        Assert.assertTrue(server.isRegistered(beanName("FirstBean")));
+        Assert.assertFalse(server.isRegistered(beanName("SecondBean")));
+    }
+
+    @Test
+    public void testLazyInProduction() throws Exception
+    {
+        final Injector injector = createInjector(Stage.PRODUCTION, false);
+
+        Assert.assertFalse(server.isRegistered(beanName("FirstBean")));
+
+        final FirstBean first = injector.getInstance(FirstBean.class);
+        Assert.assertEquals("one", first.getFirst());
+        Assert.assertSame(first, injector.getInstance(FirstBean.class));
+        Assert.assertTrue(server.isRegistered(beanName("FirstBean")));
+        Assert.assertFalse(server.isRegistered(beanName("SecondBean")));
+    }
+
+    private static ObjectName beanName(final String bean) throws Exception
+    {
+        return new ObjectName("com.opentable.config:n0=com,n1=opentable,n2=config,n3=ConfigBinderTest$" + bean);
+    }
+}
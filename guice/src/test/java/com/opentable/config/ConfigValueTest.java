@@ -0,0 +1,90 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.config;
+
+import java.time.Duration;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.CreationException;
+import com.google.inject.Guice;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ConfigValueTest
+{
+    enum Mode
+    {
+        FAST, SLOW
+    }
+
+    static class Component
+    {
+        final int timeout;
+        final Duration interval;
+
+        @Inject
+        @ConfigValue("ot.foo.name")
+        String name;
+
+        @Inject
+        @ConfigValue("ot.foo.mode")
+        Mode mode;
+
+        @Inject
+        Component(@ConfigValue("ot.foo.timeout") int timeout, @ConfigValue("ot.foo.interval") Duration interval)
+        {
+            this.timeout = timeout;
+            this.interval = interval;
+        }
+    }
+
+    @Test
+    public void testInjectValues()
+    {
+        final Injector injector = Guice.createInjector(new AbstractModule() {
+            @Override
+            protected void configure()
+            {
+                install (ConfigModule.forTesting("ot.foo.timeout", "250", "ot.foo.name", "foo", "ot.foo.mode", "slow"));
+                ConfigBinder.of(binder())
+                    .bindValue("ot.foo.timeout", int.class)
+                    .bindValue("ot.foo.name", String.class)
+                    .bindValue("ot.foo.mode", Mode.class)
+                    .bindValue("ot.foo.interval", Duration.class, "5s");
+            }
+        });
+
+        final Component component = injector.getInstance(Component.class);
+        Assert.assertEquals(250, component.timeout);
+        Assert.assertEquals(Duration.ofSeconds(5), component.interval);
+        Assert.assertEquals("foo", component.name);
+        Assert.assertEquals(Mode.SLOW, component.mode);
+    }
+
+    @Test(expected = CreationException.class)
+    public void testUnsupportedType()
+    {
+        Guice.createInjector(new AbstractModule() {
+            @Override
+            protected void configure()
+            {
+                install (ConfigModule.forTesting());
+                ConfigBinder.of(binder()).bindValue("ot.foo.list", java.util.List.class);
+            }
+        });
+    }
+}
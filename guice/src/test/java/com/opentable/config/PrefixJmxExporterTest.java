@@ -0,0 +1,90 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.config;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.commons.configuration.PropertiesConfiguration;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.weakref.jmx.testing.TestingMBeanServer;
+
+public class PrefixJmxExporterTest
+{
+    private final MBeanServer server = new TestingMBeanServer();
+    private PropertiesConfiguration pc;
+    private ConfigJmxExporter exporter;
+
+    @Before
+    public void setUp()
+    {
+        System.setProperty(Config.ACCESS_SAMPLE_RATE_PROPERTY_NAME, "1");
+        pc = new PropertiesConfiguration();
+        pc.setProperty("db.host", "localhost");
+
+        exporter = new ConfigJmxExporter(Config.getFixedConfig(pc));
+        exporter.setBlockingExport(true);
+        exporter.setPrefixDepth(1);
+        exporter.setMBeanServer(server);
+        exporter.start();
+    }
+
+    @After
+    public void tearDown()
+    {
+        exporter.close();
+        System.clearProperty(Config.ACCESS_SAMPLE_RATE_PROPERTY_NAME);
+    }
+
+    @Test
+    public void testPrefixBeans() throws Exception
+    {
+        Assert.assertEquals("localhost", server.getAttribute(prefix("db"), "host"));
+        Assert.assertTrue(server.isRegistered(new ObjectName("com.opentable.config:config=ACCESS")));
+        Assert.assertFalse(server.isRegistered(new ObjectName("com.opentable.config:config=ROOT")));
+
+        pc.setProperty("web.port", "8080");
+        Assert.assertEquals("8080", server.getAttribute(prefix("web"), "port"));
+    }
+
+    @Test
+    public void testPrefixBeansFollowChanges() throws Exception
+    {
+        pc.setProperty("web.port", "8080");
+        pc.setProperty("db.host", "remote");
+        Assert.assertEquals("remote", server.getAttribute(prefix("db"), "host"));
+
+        pc.clearProperty("db.host");
+        Assert.assertFalse(server.isRegistered(prefix("db")));
+        Assert.assertEquals("8080", server.getAttribute(prefix("web"), "port"));
+    }
+
+    @Test
+    public void testCloseStopsFollowingConfig() throws Exception
+    {
+        exporter.close();
+        Assert.assertFalse(server.isRegistered(prefix("db")));
+
+        pc.setProperty("web.port", "8080");
+        Assert.assertFalse(server.isRegistered(prefix("web")));
+    }
+
+    private static ObjectName prefix(String prefix) throws Exception
+    {
+        return new ObjectName("com.opentable.config:config=PREFIX,prefix=" + ObjectName.quote(prefix));
+    }
+}
@@ -42,7 +42,9 @@ public class TestConfigProvider
         config = Config.getEmptyConfig();
         server = new TestingMBeanServer();
         exporter = new ConfigJmxExporter(config);
+        exporter.setBlockingExport(true);
         exporter.setMBeanServer(server);
+        exporter.start();
 
         provider = (ConfigProvider<MyBean>) ConfigProvider.of(MyBean.class);
     }
@@ -66,6 +68,26 @@ public class TestConfigProvider
         ObjectName beanName = new ObjectName("com.opentable.config:n0=com,n1=opentable,n2=config,n3=TestConfigProvider$MyBean");
         Assert.assertEquals("something", server.getAttribute(beanName, "x"));
     }
-}
 
+    @Test
+    public void testLazyBuildsOnFirstGet() throws Exception
+    {
+        final ConfigProvider<MyBean> lazyProvider = (ConfigProvider<MyBean>) ConfigProvider.lazy(MyBean.class);
+        lazyProvider.setExporter(exporter);
+        lazyProvider.setConfig(config);
+
+        ObjectName beanName = new ObjectName("com.opentable.config:n0=com,n1=opentable,n2=config,n3=TestConfigProvider$MyBean");
+        Assert.assertFalse(server.isRegistered(beanName));
 
+        final MyBean bean = lazyProvider.get();
+        Assert.assertEquals("something", bean.getX());
+        Assert.assertSame(bean, lazyProvider.get());
+        Assert.assertEquals("something", server.getAttribute(beanName, "x"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testLazyWithoutConfig()
+    {
+        ConfigProvider.lazy(MyBean.class).get();
+    }
+}
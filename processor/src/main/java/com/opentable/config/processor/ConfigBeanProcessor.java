@@ -0,0 +1,669 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.config.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic.Kind;
+
+import com.opentable.config.ConfigBeanSupport;
+import com.opentable.config.DataSize;
+
+/**
+ * Generates an implementation for every interface or class with {@code @org.skife.config.Config} methods, so that
+ * {@code Config.getBean} can build the bean without generating a class at runtime. The implementation of
+ * {@code com.example.Outer.DbConfig} is {@code com.example.Outer_DbConfig_ConfigBean}.
+ *
+ * Keys and {@code @Default} values are checked at compile time. Beans that use features the generated code does
+ * not support (keys with replacements, methods with parameters, unknown value types) are left to config-magic.
+ */
+@SupportedAnnotationTypes(ConfigBeanProcessor.CONFIG)
+public class ConfigBeanProcessor extends AbstractProcessor
+{
+    static final String CONFIG = "org.skife.config.Config";
+    static final String DEFAULT = "org.skife.config.Default";
+    static final String DEFAULT_NULL = "org.skife.config.DefaultNull";
+    static final String SUFFIX = "_ConfigBean";
+
+    private static final String SUPPORT = "com.opentable.config.ConfigBeanSupport";
+
+    private static final Pattern AMOUNT = Pattern.compile("\\s*\\d+\\s*\\S+\\s*");
+
+    private final Set<String> processed = new HashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion()
+    {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv)
+    {
+        final TypeElement config = processingEnv.getElementUtils().getTypeElement(CONFIG);
+        if (config == null) {
+            return false;
+        }
+
+        final Set<TypeElement> beans = new LinkedHashSet<>();
+        for (final Element element : roundEnv.getElementsAnnotatedWith(config)) {
+            if (element.getKind() == ElementKind.METHOD && element.getEnclosingElement() instanceof TypeElement) {
+                beans.add((TypeElement) element.getEnclosingElement());
+            }
+        }
+        for (final TypeElement bean : beans) {
+            if (processed.add(bean.getQualifiedName().toString())) {
+                processBean(bean);
+            }
+        }
+
+        // Other processors may want to see @Config as well.
+        return false;
+    }
+
+    private void processBean(final TypeElement bean)
+    {
+        boolean generate = checkBean(bean);
+
+        final List<Property> properties = new ArrayList<>();
+        for (final ExecutableElement method : collectMethods(bean)) {
+            final AnnotationMirror annotation = findAnnotation(method, CONFIG);
+            if (annotation == null) {
+                if (method.getModifiers().contains(Modifier.ABSTRACT)) {
+                    note(bean, "%s() has no @Config annotation", method.getSimpleName());
+                    generate = false;
+                }
+                continue;
+            }
+
+            final Property property = property(bean, method, annotation);
+            if (property == null) {
+                generate = false;
+            }
+            else {
+                properties.add(property);
+            }
+        }
+
+        if (generate) {
+            write(bean, properties);
+        }
+    }
+
+    /**
+     * Checks that the bean can be subclassed from its own package.
+     */
+    private boolean checkBean(final TypeElement bean)
+    {
+        if (bean.getKind() != ElementKind.INTERFACE && bean.getKind() != ElementKind.CLASS) {
+            note(bean, "only interfaces and classes are supported");
+            return false;
+        }
+        if (bean.getKind() == ElementKind.CLASS && bean.getModifiers().contains(Modifier.FINAL)) {
+            error(bean, "configuration bean %s must not be final", bean.getQualifiedName());
+            return false;
+        }
+        if (!bean.getTypeParameters().isEmpty()) {
+            note(bean, "generic configuration beans are not supported");
+            return false;
+        }
+        for (Element e = bean; e instanceof TypeElement; e = e.getEnclosingElement()) {
+            if (e.getModifiers().contains(Modifier.PRIVATE)) {
+                note(bean, "private configuration beans are not supported");
+                return false;
+            }
+            if (((TypeElement) e).getNestingKind() == NestingKind.MEMBER && e.getKind() == ElementKind.CLASS
+                && !e.getModifiers().contains(Modifier.STATIC)) {
+                note(bean, "inner classes are not supported, make the class static");
+                return false;
+            }
+            if (((TypeElement) e).getNestingKind() == NestingKind.LOCAL || ((TypeElement) e).getNestingKind() == NestingKind.ANONYMOUS) {
+                return false;
+            }
+        }
+        if (bean.getKind() == ElementKind.CLASS) {
+            boolean hasConstructor = false;
+            for (final ExecutableElement constructor : ElementFilter.constructorsIn(bean.getEnclosedElements())) {
+                hasConstructor |= constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE);
+            }
+            if (!hasConstructor) {
+                note(bean, "configuration bean classes need a non-private constructor without arguments");
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns all instance methods of the bean and its supertypes, a method declared closer to the bean hiding
+     * methods with the same signature further up.
+     */
+    private List<ExecutableElement> collectMethods(final TypeElement bean)
+    {
+        final Map<String, ExecutableElement> methods = new LinkedHashMap<>();
+        final Set<String> visited = new HashSet<>();
+        final Deque<TypeElement> pending = new ArrayDeque<>();
+        pending.add(bean);
+        while (!pending.isEmpty()) {
+            final TypeElement type = pending.remove();
+            if (!visited.add(type.getQualifiedName().toString()) || type.getQualifiedName().contentEquals("java.lang.Object")) {
+                continue;
+            }
+            for (final ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+                if (!method.getModifiers().contains(Modifier.STATIC) && !method.getModifiers().contains(Modifier.PRIVATE)) {
+                    final String signature = method.toString();
+                    if (!methods.containsKey(signature)) {
+                        methods.put(signature, method);
+                    }
+                }
+            }
+            addSupertype(type.getSuperclass(), pending);
+            for (final TypeMirror supertype : type.getInterfaces()) {
+                addSupertype(supertype, pending);
+            }
+        }
+        return new ArrayList<>(methods.values());
+    }
+
+    private static void addSupertype(final TypeMirror type, final Deque<TypeElement> pending)
+    {
+        if (type.getKind() == TypeKind.DECLARED) {
+            pending.add((TypeElement) ((DeclaredType) type).asElement());
+        }
+    }
+
+    /**
+     * Validates a {@code @Config} method. Returns null if the method is invalid or the generated code cannot
+     * implement it.
+     */
+    private Property property(final TypeElement bean, final ExecutableElement method, final AnnotationMirror annotation)
+    {
+        final Set<Modifier> modifiers = method.getModifiers();
+        if (modifiers.contains(Modifier.FINAL)) {
+            error(method, "@Config method %s() must not be final", method.getSimpleName());
+            return null;
+        }
+
+        final List<String> keys = stringValues(annotation);
+        if (keys.isEmpty()) {
+            error(method, annotation, "@Config on %s() needs at least one key", method.getSimpleName());
+            return null;
+        }
+        boolean valid = true;
+        boolean replacements = false;
+        for (final String key : keys) {
+            if (key.isEmpty() || !key.trim().equals(key) || key.chars().anyMatch(Character::isWhitespace)
+                || key.startsWith(".") || key.endsWith(".") || key.contains("..")) {
+                error(method, annotation, "invalid configuration key '%s'", key);
+                valid = false;
+            }
+            replacements |= key.contains("${");
+        }
+
+        final AnnotationMirror defaultAnnotation = findAnnotation(method, DEFAULT);
+        final boolean defaultNull = findAnnotation(method, DEFAULT_NULL) != null;
+        final String defaultValue = defaultAnnotation == null ? null : stringValues(defaultAnnotation).get(0);
+        final TypeMirror type = method.getReturnType();
+
+        if (defaultAnnotation != null && defaultNull) {
+            error(method, "%s() has both @Default and @DefaultNull", method.getSimpleName());
+            valid = false;
+        }
+        if (defaultNull && type.getKind().isPrimitive()) {
+            error(method, "%s() returns a primitive and cannot be @DefaultNull", method.getSimpleName());
+            valid = false;
+        }
+        if (type.getKind() == TypeKind.VOID) {
+            error(method, "@Config method %s() must return a value", method.getSimpleName());
+            valid = false;
+        }
+
+        final String conversion = valid ? conversion(type) : null;
+        if (valid && defaultValue != null && conversion != null) {
+            final String problem = checkDefault(type, defaultValue);
+            if (problem != null) {
+                error(method, defaultAnnotation, "@Default(\"%s\") of %s(): %s", defaultValue, method.getSimpleName(), problem);
+                valid = false;
+            }
+        }
+        if (!valid) {
+            return null;
+        }
+
+        if (replacements) {
+            note(method, "keys of %s() contain replacements, the bean is built by config-magic", method.getSimpleName());
+            return null;
+        }
+        if (!method.getParameters().isEmpty()) {
+            note(method, "%s() has parameters, the bean is built by config-magic", method.getSimpleName());
+            return null;
+        }
+        if (conversion == null) {
+            note(method, "type %s of %s() is not supported, the bean is built by config-magic", type, method.getSimpleName());
+            return null;
+        }
+
+        final boolean isAbstract = modifiers.contains(Modifier.ABSTRACT);
+        final Element owner = method.getEnclosingElement();
+        if (!isAbstract && owner.getKind() == ElementKind.INTERFACE && !owner.equals(bean)) {
+            note(method, "inherited default method %s() is not supported, the bean is built by config-magic", method.getSimpleName());
+            return null;
+        }
+
+        return new Property(method, keys, conversion, defaultValue, defaultNull, !isAbstract && defaultValue == null && !defaultNull);
+    }
+
+    /**
+     * Returns the expression that converts a String, written as {@code %s}, into the given type, or null if the
+     * type is not supported.
+     */
+    private String conversion(final TypeMirror type)
+    {
+        switch (type.getKind()) {
+            case BOOLEAN:
+                return "Boolean.parseBoolean(%s)";
+            case BYTE:
+                return "Byte.parseByte(%s)";
+            case SHORT:
+                return "Short.parseShort(%s)";
+            case INT:
+                return "Integer.parseInt(%s)";
+            case LONG:
+                return "Long.parseLong(%s)";
+            case FLOAT:
+                return "Float.parseFloat(%s)";
+            case DOUBLE:
+                return "Double.parseDouble(%s)";
+            case DECLARED:
+                break;
+            default:
+                return null;
+        }
+
+        final DeclaredType declared = (DeclaredType) type;
+        final TypeElement element = (TypeElement) declared.asElement();
+        if (!declared.getTypeArguments().isEmpty()) {
+            return null;
+        }
+
+        final String name = element.getQualifiedName().toString();
+        switch (name) {
+            case "java.lang.String":
+                return "%s";
+            case "java.lang.Boolean":
+            case "java.lang.Byte":
+            case "java.lang.Short":
+            case "java.lang.Integer":
+            case "java.lang.Long":
+            case "java.lang.Float":
+            case "java.lang.Double":
+                return name + ".valueOf(%s)";
+            case "java.net.URI":
+                return "java.net.URI.create(%s)";
+            case "java.time.Duration":
+                return SUPPORT + ".toDuration(%s)";
+            case "com.opentable.config.DataSize":
+                return "com.opentable.config.DataSize.parse(%s)";
+            case "org.skife.config.TimeSpan":
+            case "org.skife.config.DataAmount":
+                return "new " + name + "(%s)";
+            default:
+                break;
+        }
+
+        if (element.getKind() == ElementKind.ENUM) {
+            return SUPPORT + ".toEnum(" + name + ".class, %s)";
+        }
+        if (!element.getModifiers().contains(Modifier.PUBLIC)) {
+            return null;
+        }
+        for (final ExecutableElement method : ElementFilter.methodsIn(element.getEnclosedElements())) {
+            if (method.getSimpleName().contentEquals("valueOf") && isPublicStringFunction(method)
+                && processingEnv.getTypeUtils().isSameType(method.getReturnType(), type)) {
+                return name + ".valueOf(%s)";
+            }
+        }
+        if (!element.getModifiers().contains(Modifier.ABSTRACT)) {
+            for (final ExecutableElement constructor : ElementFilter.constructorsIn(element.getEnclosedElements())) {
+                if (isPublicStringFunction(constructor)) {
+                    return "new " + name + "(%s)";
+                }
+            }
+        }
+        return null;
+    }
+
+    private boolean isPublicStringFunction(final ExecutableElement method)
+    {
+        return method.getModifiers().contains(Modifier.PUBLIC)
+            && (method.getKind() == ElementKind.CONSTRUCTOR || method.getModifiers().contains(Modifier.STATIC))
+            && method.getParameters().size() == 1
+            && method.getParameters().get(0).asType().toString().equals("java.lang.String");
+    }
+
+    /**
+     * Returns what is wrong with a default value, or null if it can be converted.
+     */
+    private String checkDefault(final TypeMirror type, final String value)
+    {
+        final String name = type.getKind().isPrimitive()
+            ? processingEnv.getTypeUtils().boxedClass((javax.lang.model.type.PrimitiveType) type).getQualifiedName().toString()
+            : ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().toString();
+        try {
+            switch (name) {
+                case "java.lang.Boolean":
+                    return "true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value) ? null : "not true or false";
+                case "java.lang.Byte":
+                    Byte.parseByte(value);
+                    return null;
+                case "java.lang.Short":
+                    Short.parseShort(value);
+                    return null;
+                case "java.lang.Integer":
+                    Integer.parseInt(value);
+                    return null;
+                case "java.lang.Long":
+                    Long.parseLong(value);
+                    return null;
+                case "java.lang.Float":
+                    Float.parseFloat(value);
+                    return null;
+                case "java.lang.Double":
+                    Double.parseDouble(value);
+                    return null;
+                case "java.net.URI":
+                    new URI(value);
+                    return null;
+                case "java.time.Duration":
+                    // The same parser the generated code uses at runtime.
+                    ConfigBeanSupport.toDuration(value);
+                    return null;
+                case "com.opentable.config.DataSize":
+                    DataSize.parse(value);
+                    return null;
+                case "org.skife.config.TimeSpan":
+                case "org.skife.config.DataAmount":
+                    return AMOUNT.matcher(value).matches() ? null : "not a number followed by a unit";
+                default:
+                    break;
+            }
+        }
+        catch (NumberFormatException e) {
+            return "not a valid " + type;
+        }
+        catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+        catch (URISyntaxException e) {
+            return e.getMessage();
+        }
+
+        final Element element = processingEnv.getTypeUtils().asElement(type);
+        if (element != null && element.getKind() == ElementKind.ENUM) {
+            for (final Element constant : element.getEnclosedElements()) {
+                if (constant.getKind() == ElementKind.ENUM_CONSTANT && constant.getSimpleName().toString().equalsIgnoreCase(value)) {
+                    return null;
+                }
+            }
+            return "not a constant of " + name;
+        }
+        return null;
+    }
+
+    private void write(final TypeElement bean, final List<Property> properties)
+    {
+        final String packageName = processingEnv.getElementUtils().getPackageOf(bean).getQualifiedName().toString();
+        final String beanName = bean.getQualifiedName().toString();
+        final String simpleName = (packageName.isEmpty() ? beanName : beanName.substring(packageName.length() + 1)).replace('.', '_') + SUFFIX;
+        final boolean isInterface = bean.getKind() == ElementKind.INTERFACE;
+
+        try (PrintWriter out = new PrintWriter(processingEnv.getFiler()
+                .createSourceFile(packageName.isEmpty() ? simpleName : packageName + "." + simpleName, bean).openWriter())) {
+            if (!packageName.isEmpty()) {
+                out.printf("package %s;%n%n", packageName);
+            }
+            out.printf("/** Generated by %s from {@link %s}, do not edit. */%n", ConfigBeanProcessor.class.getName(), beanName);
+            out.printf("public final class %s %s %s%n{%n", simpleName, isInterface ? "implements" : "extends", beanName);
+
+            for (final Property p : properties) {
+                out.printf("    private final %s %s;%n", p.method.getReturnType(), p.field());
+                if (p.callSuper) {
+                    out.printf("    private final boolean %s$present;%n", p.field());
+                }
+            }
+
+            out.printf("%n    public %s(final org.skife.config.ConfigSource source)%n    {%n", simpleName);
+            if (!properties.isEmpty()) {
+                out.printf("        String value;%n");
+            }
+            for (final Property p : properties) {
+                out.printf("%n        value = %s.getValue(source, %s);%n", SUPPORT, p.keyLiterals());
+                final String converted = String.format(p.conversion, "value");
+                if (p.callSuper) {
+                    out.printf("        this.%s$present = value != null;%n", p.field());
+                    out.printf("        this.%s = value != null ? %s : %s;%n", p.field(), converted, zeroValue(p.method.getReturnType()));
+                }
+                else if (p.defaultNull) {
+                    out.printf("        this.%s = value != null ? %s : null;%n", p.field(), converted);
+                }
+                else if (p.defaultValue != null) {
+                    out.printf("        this.%s = %s;%n", p.field(), String.format(p.conversion, "value != null ? value : " + literal(p.defaultValue)));
+                }
+                else {
+                    out.printf("        if (value == null) {%n");
+                    out.printf("            throw %s.missingValue(%s.class, \"%s\", %s);%n", SUPPORT, beanName, p.method.getSimpleName(), p.keyLiterals());
+                    out.printf("        }%n");
+                    out.printf("        this.%s = %s;%n", p.field(), converted);
+                }
+            }
+            out.printf("    }%n");
+
+            for (final Property p : properties) {
+                out.printf("%n    @Override%n    %s%s %s()%s%n    {%n", visibility(bean, p.method), p.method.getReturnType(), p.method.getSimpleName(), throwsClause(p.method));
+                if (p.callSuper) {
+                    final String superCall = isInterface ? beanName + ".super" : "super";
+                    out.printf("        return %s$present ? %s : %s.%s();%n", p.field(), p.field(), superCall, p.method.getSimpleName());
+                }
+                else {
+                    out.printf("        return %s;%n", p.field());
+                }
+                out.printf("    }%n");
+            }
+            out.printf("}%n");
+        }
+        catch (IOException e) {
+            error(bean, "could not write %s: %s", simpleName, e.getMessage());
+        }
+    }
+
+    private static String visibility(final TypeElement bean, final ExecutableElement method)
+    {
+        if (bean.getKind() == ElementKind.INTERFACE || method.getModifiers().contains(Modifier.PUBLIC)) {
+            return "public ";
+        }
+        return method.getModifiers().contains(Modifier.PROTECTED) ? "protected " : "";
+    }
+
+    private static String throwsClause(final ExecutableElement method)
+    {
+        if (method.getThrownTypes().isEmpty()) {
+            return "";
+        }
+        final StringBuilder sb = new StringBuilder(" throws ");
+        for (int i = 0; i < method.getThrownTypes().size(); i++) {
+            sb.append(i > 0 ? ", " : "").append(method.getThrownTypes().get(i));
+        }
+        return sb.toString();
+    }
+
+    private static String zeroValue(final TypeMirror type)
+    {
+        switch (type.getKind()) {
+            case BOOLEAN:
+                return "false";
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG:
+            case FLOAT:
+            case DOUBLE:
+                return "0";
+            default:
+                return "null";
+        }
+    }
+
+    static String literal(final String value)
+    {
+        final StringBuilder sb = new StringBuilder("\"");
+        for (final char c : value.toCharArray()) {
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20 || c > 0x7e) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    }
+                    else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private static AnnotationMirror findAnnotation(final Element element, final String name)
+    {
+        for (final AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            if (((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().contentEquals(name)) {
+                return annotation;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the {@code value} of an annotation whose value is a String or an array of Strings.
+     */
+    private static List<String> stringValues(final AnnotationMirror annotation)
+    {
+        final List<String> result = new ArrayList<>();
+        for (final Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : annotation.getElementValues().entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals("value")) {
+                final Object value = entry.getValue().getValue();
+                if (value instanceof List) {
+                    for (final Object item : (List<?>) value) {
+                        result.add(String.valueOf(((AnnotationValue) item).getValue()));
+                    }
+                }
+                else {
+                    result.add(String.valueOf(value));
+                }
+            }
+        }
+        return result;
+    }
+
+    private void error(final Element element, final String format, final Object ... args)
+    {
+        processingEnv.getMessager().printMessage(Kind.ERROR, String.format(format, args), element);
+    }
+
+    private void error(final Element element, final AnnotationMirror annotation, final String format, final Object ... args)
+    {
+        processingEnv.getMessager().printMessage(Kind.ERROR, String.format(format, args), element, annotation);
+    }
+
+    private void note(final Element element, final String format, final Object ... args)
+    {
+        processingEnv.getMessager().printMessage(Kind.NOTE, String.format(format, args), element);
+    }
+
+    private static final class Property
+    {
+        final ExecutableElement method;
+        final List<String> keys;
+        final String conversion;
+        final String defaultValue;
+        final boolean defaultNull;
+        final boolean callSuper;
+
+        Property(final ExecutableElement method, final List<String> keys, final String conversion,
+                 final String defaultValue, final boolean defaultNull, final boolean callSuper)
+        {
+            this.method = method;
+            this.keys = keys;
+            this.conversion = conversion;
+            this.defaultValue = defaultValue;
+            this.defaultNull = defaultNull;
+            this.callSuper = callSuper;
+        }
+
+        String field()
+        {
+            return method.getSimpleName().toString();
+        }
+
+        String keyLiterals()
+        {
+            final StringBuilder sb = new StringBuilder();
+            for (final String key : keys) {
+                sb.append(sb.length() > 0 ? ", " : "").append(literal(key));
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.config.processor;
+
+import static org.hamcrest.CoreMatchers.is;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.opentable.config.Config;
+
+public class TestConfigBeanProcessor
+{
+    private File out;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        out = Files.createTempDirectory("config-processor").toFile();
+    }
+
+    @Test
+    public void testGeneratedBean() throws Exception
+    {
+        final List<String> errors = compile("test.DbConfig",
+            "package test;\n"
+            + "public interface DbConfig {\n"
+            + "    @org.skife.config.Config({\"db.host\", \"host\"})\n"
+            + "    @org.skife.config.Default(\"localhost\")\n"
+            + "    String getHost();\n"
+            + "    @org.skife.config.Config(\"db.port\")\n"
+            + "    int getPort();\n"
+            + "    @org.skife.config.Config(\"db.timeout\")\n"
+            + "    @org.skife.config.Default(\"5s\")\n"
+            + "    java.time.Duration getTimeout();\n"
+            + "}\n");
+        Assert.assertThat(errors.toString(), errors.isEmpty(), is(true));
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[] { out.toURI().toURL() }, getClass().getClassLoader())) {
+            final Class<?> beanClass = loader.loadClass("test.DbConfig");
+            final Object bean = Config.getFixedConfig("db.port", "5432").getBean(beanClass);
+
+            Assert.assertThat(bean.getClass().getName(), is("test.DbConfig" + ConfigBeanProcessor.SUFFIX));
+            Assert.assertThat(beanClass.getMethod("getHost").invoke(bean), is((Object) "localhost"));
+            Assert.assertThat(beanClass.getMethod("getPort").invoke(bean), is((Object) 5432));
+            Assert.assertThat(beanClass.getMethod("getTimeout").invoke(bean), is((Object) java.time.Duration.ofSeconds(5)));
+        }
+    }
+
+    @Test
+    public void testValidation() throws Exception
+    {
+        final List<String> errors = compile("test.BadConfig",
+            "package test;\n"
+            + "public interface BadConfig {\n"
+            + "    @org.skife.config.Config(\"a key\")\n"
+            + "    String getKey();\n"
+            + "    @org.skife.config.Config(\"number\")\n"
+            + "    @org.skife.config.Default(\"ten\")\n"
+            + "    int getNumber();\n"
+            + "    @org.skife.config.Config(\"flag\")\n"
+            + "    @org.skife.config.Default(\"yes\")\n"
+            + "    boolean isFlag();\n"
+            + "    @org.skife.config.Config(\"size\")\n"
+            + "    @org.skife.config.DefaultNull\n"
+            + "    long getSize();\n"
+            + "}\n");
+
+        Assert.assertThat(errors.toString(), errors.size(), is(4));
+        Assert.assertThat(errors.get(0), is("invalid configuration key 'a key'"));
+        Assert.assertThat(errors.get(1), is("@Default(\"ten\") of getNumber(): not a valid int"));
+        Assert.assertThat(errors.get(2), is("@Default(\"yes\") of isFlag(): not true or false"));
+        Assert.assertThat(errors.get(3), is("getSize() returns a primitive and cannot be @DefaultNull"));
+    }
+
+    @Test
+    public void testQuantityDefaultsUseRuntimeParser() throws Exception
+    {
+        final List<String> errors = compile("test.QuantityConfig",
+            "package test;\n"
+            + "public interface QuantityConfig {\n"
+            + "    @org.skife.config.Config(\"tab\")\n"
+            + "    @org.skife.config.Default(\"5\\ts\")\n"
+            + "    java.time.Duration getTab();\n"
+            + "    @org.skife.config.Config(\"forever\")\n"
+            + "    @org.skife.config.Default(\"99999999999999d\")\n"
+            + "    java.time.Duration getForever();\n"
+            + "    @org.skife.config.Config(\"heap\")\n"
+            + "    @org.skife.config.Default(\"512m\")\n"
+            + "    com.opentable.config.DataSize getHeap();\n"
+            + "}\n");
+
+        Assert.assertThat(errors.toString(), errors.size(), is(2));
+        Assert.assertThat(errors.get(0), is("@Default(\"5\ts\") of getTab(): '5\ts' is not a duration, e.g. 30s or 250ms"));
+        Assert.assertThat(errors.get(1), is("@Default(\"99999999999999d\") of getForever(): '99999999999999d' is out of range"));
+    }
+
+    @Test
+    public void testUnsupportedBeanIsLeftToConfigMagic() throws Exception
+    {
+        final List<String> errors = compile("test.ReplacementConfig",
+            "package test;\n"
+            + "public interface ReplacementConfig {\n"
+            + "    @org.skife.config.Config(\"${name}.value\")\n"
+            + "    String getValue();\n"
+            + "}\n");
+
+        Assert.assertThat(errors.toString(), errors.isEmpty(), is(true));
+        Assert.assertThat(new File(out, "test/ReplacementConfig" + ConfigBeanProcessor.SUFFIX + ".java").exists(), is(false));
+    }
+
+    /**
+     * Compiles one source file with the processor into the output directory and returns the error messages.
+     */
+    private List<String> compile(final String className, final String source) throws Exception
+    {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        final JavaFileObject file = new SimpleJavaFileObject(URI.create("string:///" + className.replace('.', '/') + ".java"), JavaFileObject.Kind.SOURCE)
+        {
+            @Override
+            public CharSequence getCharContent(final boolean ignoreEncodingErrors)
+            {
+                return source;
+            }
+        };
+
+        // The generated code needs otj-config and config-magic.
+        final String classPath = location(Config.class) + File.pathSeparator + location(org.skife.config.Config.class);
+        final List<String> options = Arrays.asList("-d", out.getPath(), "-s", out.getPath(), "-classpath", classPath);
+
+        final JavaCompiler.CompilationTask task = compiler.getTask(null, null, diagnostics, options, null, Collections.singletonList(file));
+        task.setProcessors(Collections.singletonList(new ConfigBeanProcessor()));
+        task.call();
+
+        final List<String> errors = new ArrayList<>();
+        for (final Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                errors.add(diagnostic.getMessage(null));
+            }
+        }
+        return errors;
+    }
+
+    private static String location(final Class<?> type) throws Exception
+    {
+        return new File(type.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+    }
+}